@@ -0,0 +1,126 @@
+package com.example.springrediscrac.loadtest;
+
+import com.example.springrediscrac.binary.BinaryProtocol;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Minimal blocking client of the {@link BinaryProtocol}, with one request in flight at a time.
+ * Not thread-safe; use one client per thread.
+ */
+final class BinaryCacheClient implements AutoCloseable {
+
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+    private int nextId;
+
+    BinaryCacheClient(String host, int port) throws IOException {
+        this.socket = new Socket(host, port);
+        socket.setTcpNoDelay(true);
+        this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 65536));
+        this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 65536));
+    }
+
+    byte[] get(String key) throws IOException {
+        Frame response = call(BinaryProtocol.OP_GET, key(key));
+        return response.status == BinaryProtocol.STATUS_NOT_FOUND ? null : response.payload;
+    }
+
+    /**
+     * Returns the values in key order, null for missing keys.
+     */
+    List<byte[]> mget(List<String> keys) throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(payload);
+        data.writeShort(keys.size());
+        for (String key : keys) {
+            data.write(key(key));
+        }
+        int id = send(BinaryProtocol.OP_MGET, payload.toByteArray());
+        byte[][] values = new byte[keys.size()][];
+        while (true) {
+            Frame frame = read(id);
+            if (frame.status == BinaryProtocol.STATUS_END) {
+                return new ArrayList<>(Arrays.asList(values));
+            }
+            if (frame.status != BinaryProtocol.STATUS_ITEM) {
+                throw new IOException("MGET failed with status " + frame.status + ": " + frame.message());
+            }
+            DataInputStream item = new DataInputStream(new ByteArrayInputStream(frame.payload));
+            int index = item.readUnsignedShort();
+            int length = item.readInt();
+            values[index] = length < 0 ? null : item.readNBytes(length);
+        }
+    }
+
+    void set(String key, String json, long ttlMillis) throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(payload);
+        data.write(key(key));
+        data.writeLong(ttlMillis);
+        data.write(json.getBytes(StandardCharsets.UTF_8));
+        call(BinaryProtocol.OP_SET, payload.toByteArray());
+    }
+
+    private Frame call(byte op, byte[] payload) throws IOException {
+        Frame response = read(send(op, payload));
+        if (response.status != BinaryProtocol.STATUS_OK && response.status != BinaryProtocol.STATUS_NOT_FOUND) {
+            throw new IOException("Request failed with status " + response.status + ": " + response.message());
+        }
+        return response;
+    }
+
+    private int send(byte op, byte[] payload) throws IOException {
+        int id = nextId++;
+        out.writeInt(BinaryProtocol.HEADER_LENGTH + payload.length);
+        out.writeByte(op);
+        out.writeInt(id);
+        out.write(payload);
+        out.flush();
+        return id;
+    }
+
+    private Frame read(int expectedId) throws IOException {
+        int length = in.readInt();
+        byte status = in.readByte();
+        int id = in.readInt();
+        byte[] payload = in.readNBytes(length - BinaryProtocol.HEADER_LENGTH);
+        if (id != expectedId) {
+            throw new IOException("Expected response to request " + expectedId + ", got " + id);
+        }
+        return new Frame(status, payload);
+    }
+
+    private static byte[] key(String key) {
+        byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+        byte[] encoded = new byte[bytes.length + 2];
+        encoded[0] = (byte) (bytes.length >>> 8);
+        encoded[1] = (byte) bytes.length;
+        System.arraycopy(bytes, 0, encoded, 2, bytes.length);
+        return encoded;
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+
+    private record Frame(byte status, byte[] payload) {
+
+        String message() {
+            return new String(payload, StandardCharsets.UTF_8);
+        }
+    }
+}
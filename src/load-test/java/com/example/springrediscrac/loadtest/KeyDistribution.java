@@ -0,0 +1,56 @@
+package com.example.springrediscrac.loadtest;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Picks key indexes in {@code [0, keyCount)}.
+ */
+interface KeyDistribution {
+
+    int next(SplittableRandom random);
+
+    static KeyDistribution of(Workload workload) {
+        int keyCount = workload.keyCount;
+        switch (workload.keyDistribution) {
+            case "uniform":
+                return random -> random.nextInt(keyCount);
+            case "zipf":
+                return new Zipf(keyCount, workload.zipfExponent);
+            case "hot-spot":
+                int hotKeys = Math.max(1, (int) (keyCount * workload.hotKeyFraction));
+                double hotShare = workload.hotKeyShare;
+                return random -> random.nextDouble() < hotShare || hotKeys == keyCount
+                        ? random.nextInt(hotKeys)
+                        : hotKeys + random.nextInt(keyCount - hotKeys);
+            default:
+                throw new IllegalArgumentException("Unknown key distribution: " + workload.keyDistribution);
+        }
+    }
+
+    /**
+     * Zipfian distribution over a precomputed cumulative table; key 0 is the most popular.
+     */
+    final class Zipf implements KeyDistribution {
+
+        private final double[] cumulative;
+
+        Zipf(int keyCount, double exponent) {
+            cumulative = new double[keyCount];
+            double sum = 0;
+            for (int i = 0; i < keyCount; i++) {
+                sum += 1 / Math.pow(i + 1, exponent);
+                cumulative[i] = sum;
+            }
+            for (int i = 0; i < keyCount; i++) {
+                cumulative[i] /= sum;
+            }
+        }
+
+        @Override
+        public int next(SplittableRandom random) {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble());
+            return Math.min(index >= 0 ? index : -index - 1, cumulative.length - 1);
+        }
+    }
+}
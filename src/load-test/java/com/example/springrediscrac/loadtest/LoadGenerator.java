@@ -0,0 +1,194 @@
+package com.example.springrediscrac.loadtest;
+
+import com.example.springrediscrac.loadtest.Workload.Operation;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop load generator.
+ * <p>
+ * Requests are scheduled at fixed or exponentially distributed intervals independent of
+ * response times. Latency is measured from the intended start time rather than the actual
+ * send time, so that stalls of the server, or of the generator waiting for a free in-flight
+ * slot, are charged to every request that should have been sent meanwhile (correction for
+ * coordinated omission). The service time from the actual send is recorded alongside.
+ * <p>
+ * The sequence of operations, keys and value sizes only depends on the workload seed.
+ */
+final class LoadGenerator {
+
+    private static final String KEY_PREFIX = "lt:";
+    private static final String CATALOG_ID_PREFIX = "lt-item-";
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    private static final int PRELOAD_CONCURRENCY = 16;
+
+    private final Workload workload;
+    private final URI baseUri;
+    private final HttpClient client;
+    private final KeyDistribution keys;
+    private final ValueSizes values;
+
+    LoadGenerator(Workload workload, URI baseUri) {
+        this.workload = workload;
+        this.baseUri = baseUri;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        this.keys = KeyDistribution.of(workload);
+        this.values = new ValueSizes(workload);
+    }
+
+    /**
+     * Stores a value for every key, so that reads hit from the start.
+     */
+    void preload() throws InterruptedException {
+        SplittableRandom random = new SplittableRandom(workload.seed + 1);
+        Semaphore inFlight = new Semaphore(PRELOAD_CONCURRENCY);
+        for (int key = 0; key < workload.keyCount; key++) {
+            inFlight.acquire();
+            client.sendAsync(set(key, values.nextValue(random)), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> inFlight.release());
+        }
+        inFlight.acquire(PRELOAD_CONCURRENCY);
+    }
+
+    Result run() throws InterruptedException {
+        SplittableRandom random = new SplittableRandom(workload.seed);
+        Semaphore inFlight = new Semaphore(workload.maxInFlight);
+        Result result = new Result();
+        int totalWeight = 0;
+        for (int weight : workload.mix) {
+            totalWeight += weight;
+        }
+
+        double intervalNanos = TimeUnit.SECONDS.toNanos(1) / workload.rate;
+        boolean poisson = "poisson".equals(workload.arrival);
+        long start = System.nanoTime();
+        long measureFrom = start + workload.warmup.toNanos();
+        long end = measureFrom + workload.duration.toNanos();
+        long intended = start;
+        while (intended < end) {
+            long now;
+            while ((now = System.nanoTime()) < intended) {
+                LockSupport.parkNanos(intended - now);
+            }
+
+            Operation operation = pick(random, totalWeight);
+            HttpRequest request = request(operation, random);
+            inFlight.acquire();
+            long sent = System.nanoTime();
+            long intendedAt = intended;
+            boolean measured = intended >= measureFrom;
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+                long done = System.nanoTime();
+                inFlight.release();
+                if (measured) {
+                    result.record(operation, done - intendedAt, done - sent,
+                            error != null ? "error" : Integer.toString(response.statusCode()));
+                }
+            });
+
+            intended += poisson
+                    ? (long) (-Math.log(1 - random.nextDouble()) * intervalNanos)
+                    : (long) intervalNanos;
+        }
+        if (!inFlight.tryAcquire(workload.maxInFlight, REQUEST_TIMEOUT.toSeconds(), TimeUnit.SECONDS)) {
+            throw new IllegalStateException("Requests still in flight after " + REQUEST_TIMEOUT);
+        }
+        result.elapsedNanos = System.nanoTime() - measureFrom;
+        return result;
+    }
+
+    private Operation pick(SplittableRandom random, int totalWeight) {
+        int point = random.nextInt(totalWeight);
+        for (Operation operation : Operation.values()) {
+            point -= workload.mix[operation.ordinal()];
+            if (point < 0) {
+                return operation;
+            }
+        }
+        throw new IllegalStateException("Operation mix is empty");
+    }
+
+    private HttpRequest request(Operation operation, SplittableRandom random) {
+        int key = keys.next(random);
+        switch (operation) {
+            case CACHE_GET:
+                return get("/api/cache/" + KEY_PREFIX + key);
+            case CACHE_SET:
+                return set(key, values.nextValue(random));
+            case CACHE_DELETE:
+                return HttpRequest.newBuilder(baseUri.resolve("/api/cache/" + KEY_PREFIX + key))
+                        .timeout(REQUEST_TIMEOUT).DELETE().build();
+            case CATALOG_GET:
+                return get("/api/catalog/" + CATALOG_ID_PREFIX + key);
+            default:
+                throw new IllegalArgumentException(operation.name());
+        }
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(baseUri.resolve(path)).timeout(REQUEST_TIMEOUT).GET().build();
+    }
+
+    private HttpRequest set(int key, String value) {
+        String body = "{\"key\":\"" + KEY_PREFIX + key + "\",\"value\":\"" + value + "\"}";
+        return HttpRequest.newBuilder(baseUri.resolve("/api/cache"))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    static final class Result {
+
+        final Map<Operation, Recorder> latency = new EnumMap<>(Operation.class);
+        final Map<Operation, Recorder> serviceTime = new EnumMap<>(Operation.class);
+        final Map<Operation, Map<String, LongAdder>> statuses = new EnumMap<>(Operation.class);
+        long elapsedNanos;
+
+        Result() {
+            for (Operation operation : Operation.values()) {
+                latency.put(operation, new Recorder(3));
+                serviceTime.put(operation, new Recorder(3));
+                statuses.put(operation, new ConcurrentHashMap<>());
+            }
+        }
+
+        void record(Operation operation, long latencyNanos, long serviceNanos, String status) {
+            latency.get(operation).recordValue(latencyNanos);
+            serviceTime.get(operation).recordValue(serviceNanos);
+            statuses.get(operation).computeIfAbsent(status, s -> new LongAdder()).increment();
+        }
+
+        Histogram latency(Operation operation) {
+            return latency.get(operation).getIntervalHistogram();
+        }
+
+        Histogram serviceTime(Operation operation) {
+            return serviceTime.get(operation).getIntervalHistogram();
+        }
+
+        Map<String, Long> statuses(Operation operation) {
+            Map<String, Long> counts = new TreeMap<>();
+            statuses.get(operation).forEach((status, count) -> counts.put(status, count.sum()));
+            return counts;
+        }
+    }
+}
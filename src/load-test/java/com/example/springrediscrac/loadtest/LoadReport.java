@@ -0,0 +1,154 @@
+package com.example.springrediscrac.loadtest;
+
+import com.example.springrediscrac.loadtest.Workload.Operation;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Writes the results of a run as JSON plus one HdrHistogram percentile distribution
+ * ({@code .hgrm}) per operation, and optionally compares them with a baseline report.
+ * Latencies are in milliseconds.
+ */
+final class LoadReport {
+
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+    private static final String[] COMPARED = {"p50", "p99", "p99_9", "max"};
+
+    private final ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    Path write(Workload workload, LoadGenerator.Result result, Path directory) throws IOException {
+        Files.createDirectories(directory);
+        double seconds = result.elapsedNanos / 1e9;
+
+        Map<String, Object> operations = new LinkedHashMap<>();
+        Histogram allLatency = new Histogram(3);
+        Histogram allServiceTime = new Histogram(3);
+        long errors = 0;
+        for (Operation operation : Operation.values()) {
+            Histogram latency = result.latency(operation);
+            Histogram serviceTime = result.serviceTime(operation);
+            if (latency.getTotalCount() == 0) {
+                continue;
+            }
+            allLatency.add(latency);
+            allServiceTime.add(serviceTime);
+            Map<String, Long> statuses = result.statuses(operation);
+            long operationErrors = statuses.entrySet().stream()
+                    .filter(e -> e.getKey().equals("error") || e.getKey().startsWith("5"))
+                    .mapToLong(Map.Entry::getValue).sum();
+            errors += operationErrors;
+
+            Map<String, Object> summary = summary(latency, serviceTime, seconds);
+            summary.put("errors", operationErrors);
+            summary.put("status", statuses);
+            operations.put(operation.id, summary);
+            writeDistribution(directory.resolve(workload.name + "-" + operation.id + ".hgrm"), latency);
+        }
+        Map<String, Object> all = summary(allLatency, allServiceTime, seconds);
+        all.put("errors", errors);
+        operations.put("all", all);
+        writeDistribution(directory.resolve(workload.name + "-all.hgrm"), allLatency);
+
+        Map<String, Object> build = new LinkedHashMap<>();
+        build.put("version", System.getProperty("load.version", "unknown"));
+        build.put("commit", System.getProperty("load.commit", "unknown"));
+        build.put("java", System.getProperty("java.vm.name") + " " + System.getProperty("java.version"));
+        build.put("processors", Runtime.getRuntime().availableProcessors());
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("workload", workload.describe());
+        report.put("build", build);
+        report.put("finished_at", Instant.now().toString());
+        report.put("measured_seconds", round(seconds));
+        report.put("target_rate", workload.rate);
+        report.put("achieved_rate", round(allLatency.getTotalCount() / seconds));
+        report.put("operations", operations);
+
+        Path file = directory.resolve(workload.name + ".json");
+        objectMapper.writeValue(file.toFile(), report);
+        return file;
+    }
+
+    private static Map<String, Object> summary(Histogram latency, Histogram serviceTime, double seconds) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("count", latency.getTotalCount());
+        summary.put("throughput", round(latency.getTotalCount() / seconds));
+        summary.put("latency_ms", percentiles(latency));
+        summary.put("service_time_ms", percentiles(serviceTime));
+        return summary;
+    }
+
+    private static Map<String, Object> percentiles(Histogram histogram) {
+        Map<String, Object> percentiles = new LinkedHashMap<>();
+        percentiles.put("mean", round(histogram.getMean() / NANOS_PER_MILLI));
+        percentiles.put("p50", millis(histogram, 50));
+        percentiles.put("p90", millis(histogram, 90));
+        percentiles.put("p99", millis(histogram, 99));
+        percentiles.put("p99_9", millis(histogram, 99.9));
+        percentiles.put("p99_99", millis(histogram, 99.99));
+        percentiles.put("max", round(histogram.getMaxValue() / NANOS_PER_MILLI));
+        return percentiles;
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return round(histogram.getValueAtPercentile(percentile) / NANOS_PER_MILLI);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 1000) / 1000.0;
+    }
+
+    private static void writeDistribution(Path file, Histogram histogram) throws IOException {
+        try (PrintStream out = new PrintStream(Files.newOutputStream(file))) {
+            histogram.outputPercentileDistribution(out, NANOS_PER_MILLI);
+        }
+    }
+
+    /**
+     * Prints latency and throughput per operation, with the relative change against the
+     * baseline report if one is given.
+     */
+    void print(Path reportFile, Path baselineFile, PrintStream out) throws IOException {
+        JsonNode report = objectMapper.readTree(reportFile.toFile());
+        JsonNode baseline = baselineFile != null ? objectMapper.readTree(baselineFile.toFile()) : null;
+
+        out.printf("%nWorkload %s: %.1f req/s achieved of %.1f target over %.1f s%n",
+                report.path("workload").path("name").asText(), report.path("achieved_rate").asDouble(),
+                report.path("target_rate").asDouble(), report.path("measured_seconds").asDouble());
+        out.printf("%-14s %10s %10s", "operation", "count", "req/s");
+        for (String percentile : COMPARED) {
+            out.printf(" %16s", percentile + " ms");
+        }
+        out.printf(" %8s%n", "errors");
+
+        report.path("operations").fields().forEachRemaining(entry -> {
+            JsonNode operation = entry.getValue();
+            JsonNode previous = baseline != null ? baseline.path("operations").path(entry.getKey()) : null;
+            out.printf("%-14s %10d %10.1f", entry.getKey(), operation.path("count").asLong(),
+                    operation.path("throughput").asDouble());
+            for (String percentile : COMPARED) {
+                double value = operation.path("latency_ms").path(percentile).asDouble();
+                out.printf(" %16s", withChange(value, previous != null
+                        ? previous.path("latency_ms").path(percentile) : null));
+            }
+            out.printf(" %8d%n", operation.path("errors").asLong());
+        });
+    }
+
+    private static String withChange(double value, JsonNode previous) {
+        if (previous == null || previous.isMissingNode() || previous.asDouble() == 0) {
+            return String.format("%.2f", value);
+        }
+        return String.format("%.2f (%+.0f%%)", value, (value / previous.asDouble() - 1) * 100);
+    }
+}
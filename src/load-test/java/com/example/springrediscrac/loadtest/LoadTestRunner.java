@@ -0,0 +1,85 @@
+package com.example.springrediscrac.loadtest;
+
+import com.example.springrediscrac.SpringRedisCracApplication;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Runs a workload profile against the REST API.
+ * <p>
+ * Starts an embedded Redis server (or uses the one given by {@code load.redis.port}), starts
+ * the application on a random port, optionally preloads the keys, runs the workload and
+ * writes the report to {@code target/load-test}. Application settings can be overridden with
+ * plain system properties, e.g. {@code -Dlogging.level.com.example.springrediscrac=INFO}.
+ *
+ * <pre>
+ * mvn -Pload-test verify -DskipTests -Dload.workload=read-heavy-zipf [-Dload.baseline=old.json]
+ * </pre>
+ */
+public final class LoadTestRunner {
+
+    private LoadTestRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Workload workload = Workload.load(System.getProperty("load.workload", "read-heavy-zipf"));
+        Path outputDirectory = Path.of(System.getProperty("load.output", "target/load-test"));
+        String baseline = System.getProperty("load.baseline");
+
+        int redisPort = Integer.getInteger("load.redis.port", 0);
+        RedisServer redis = null;
+        if (redisPort == 0) {
+            redisPort = freePort();
+            redis = new RedisServer(redisPort);
+            redis.start();
+        }
+
+        // System properties rank above application.yml; explicit -D settings are kept
+        Map<String, String> defaults = new LinkedHashMap<>();
+        defaults.put("server.port", "0");
+        defaults.put("spring.data.redis.port", Integer.toString(redisPort));
+        // Request logging at INFO would dominate the measurements
+        defaults.put("logging.level.com.example.springrediscrac", "WARN");
+        defaults.put("logging.level.org.springframework.cache", "WARN");
+        defaults.put("app.warmup.enabled", "false");
+        defaults.forEach((key, value) -> {
+            if (System.getProperty(key) == null) {
+                System.setProperty(key, value);
+            }
+        });
+
+        ConfigurableApplicationContext application = SpringApplication.run(SpringRedisCracApplication.class, args);
+        try {
+            int port = application.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+            LoadGenerator generator = new LoadGenerator(workload, URI.create("http://localhost:" + port));
+            if (workload.preload) {
+                generator.preload();
+            }
+            LoadGenerator.Result result = generator.run();
+
+            LoadReport report = new LoadReport();
+            Path file = report.write(workload, result, outputDirectory);
+            report.print(file, baseline != null ? Path.of(baseline) : null, System.out);
+            System.out.println("Report written to " + file.toAbsolutePath());
+        } finally {
+            application.close();
+            if (redis != null) {
+                redis.stop();
+            }
+        }
+    }
+
+    static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
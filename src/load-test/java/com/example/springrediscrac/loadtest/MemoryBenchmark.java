@@ -0,0 +1,159 @@
+package com.example.springrediscrac.loadtest;
+
+import com.example.springrediscrac.SpringRedisCracApplication;
+import com.example.springrediscrac.model.CacheItem;
+import com.example.springrediscrac.service.CacheService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import redis.embedded.RedisServer;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Measures the Redis memory per cache entry with the per-key layout and with hash buckets.
+ * <p>
+ * For each layout the application is started without a web server, the keys of the workload
+ * ({@code small-values} by default) are written once through {@link CacheService} and the
+ * growth of {@code used_memory} and of the key count is divided by the number of entries. The
+ * entries are removed again after each layout.
+ *
+ * <pre>
+ * mvn -Pload-test test-compile exec:java@memory-benchmark [-Dload.workload=small-values]
+ * </pre>
+ */
+public final class MemoryBenchmark {
+
+    private static final String KEY_PREFIX = "mem:";
+    private static final int WRITERS = 8;
+
+    private MemoryBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Workload workload = Workload.load(System.getProperty("load.workload", "small-values"));
+        Path outputDirectory = Path.of(System.getProperty("load.output", "target/load-test"));
+
+        int redisPort = Integer.getInteger("load.redis.port", 0);
+        RedisServer redis = null;
+        if (redisPort == 0) {
+            redisPort = LoadTestRunner.freePort();
+            redis = new RedisServer(redisPort);
+            redis.start();
+        }
+        System.setProperty("spring.main.web-application-type", "none");
+        System.setProperty("spring.data.redis.port", Integer.toString(redisPort));
+        System.setProperty("logging.level.com.example.springrediscrac", "WARN");
+        System.setProperty("logging.level.org.springframework.cache", "WARN");
+        // The event stream and warm-up would add their own keys to the measurement
+        System.setProperty("app.cache.events.enabled", "false");
+        System.setProperty("app.warmup.enabled", "false");
+
+        try {
+            Map<String, Object> layouts = new LinkedHashMap<>();
+            layouts.put("keys", measure(workload, false, args));
+            layouts.put("buckets", measure(workload, true, args));
+
+            Map<String, Object> report = new LinkedHashMap<>();
+            report.put("workload", workload.describe());
+            report.put("layouts", layouts);
+            Files.createDirectories(outputDirectory);
+            Path file = outputDirectory.resolve("memory-" + workload.name + ".json");
+            new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file.toFile(), report);
+
+            System.out.printf("%nMemory per entry for %d entries of workload %s%n", workload.keyCount, workload.name);
+            System.out.printf("%-8s %12s %14s %14s  %s%n", "layout", "keys", "used bytes", "bytes/entry", "encoding");
+            layouts.forEach((layout, result) -> {
+                @SuppressWarnings("unchecked")
+                Map<String, Object> r = (Map<String, Object>) result;
+                System.out.printf("%-8s %12d %14d %14.1f  %s%n", layout, r.get("keys"), r.get("used_memory"),
+                        r.get("bytes_per_entry"), r.get("encoding"));
+            });
+            System.out.println("Report written to " + file.toAbsolutePath());
+        } finally {
+            if (redis != null) {
+                redis.stop();
+            }
+        }
+    }
+
+    private static Map<String, Object> measure(Workload workload, boolean buckets, String[] args) throws Exception {
+        System.setProperty("app.cache.buckets.enabled", Boolean.toString(buckets));
+        try (ConfigurableApplicationContext application = SpringApplication.run(SpringRedisCracApplication.class, args)) {
+            CacheService cacheService = application.getBean(CacheService.class);
+            @SuppressWarnings("unchecked")
+            RedisTemplate<String, Object> redisTemplate = application.getBean("redisTemplate", RedisTemplate.class);
+            // Creates the version sequence before the baseline is taken
+            cacheService.setValue(new CacheItem(KEY_PREFIX + "baseline", 0));
+            cacheService.deleteValue(KEY_PREFIX + "baseline");
+
+            long usedBefore = usedMemory(redisTemplate);
+            long keysBefore = dbSize(redisTemplate);
+            write(workload, cacheService);
+            long used = usedMemory(redisTemplate) - usedBefore;
+            long keys = dbSize(redisTemplate) - keysBefore;
+
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("entries", workload.keyCount);
+            result.put("keys", keys);
+            result.put("used_memory", used);
+            result.put("bytes_per_entry", Math.round(used * 10.0 / workload.keyCount) / 10.0);
+            result.put("encoding", encoding(redisTemplate, buckets ? "cache-bucket:0" : "meta:" + KEY_PREFIX + 0));
+
+            for (int key = 0; key < workload.keyCount; key++) {
+                cacheService.deleteValue(KEY_PREFIX + key);
+            }
+            return result;
+        }
+    }
+
+    private static void write(Workload workload, CacheService cacheService) throws Exception {
+        ValueSizes values = new ValueSizes(workload);
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int writer = 0; writer < WRITERS; writer++) {
+                int first = writer;
+                writers.add(executor.submit(() -> {
+                    SplittableRandom random = new SplittableRandom(workload.seed + first);
+                    for (int key = first; key < workload.keyCount; key += WRITERS) {
+                        cacheService.setValue(new CacheItem(KEY_PREFIX + key, values.nextValue(random)));
+                    }
+                }));
+            }
+            for (Future<?> writer : writers) {
+                writer.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static long usedMemory(RedisTemplate<String, Object> redisTemplate) {
+        Properties info = redisTemplate.execute((RedisCallback<Properties>) connection ->
+                connection.serverCommands().info("memory"));
+        return Long.parseLong(info.getProperty("used_memory"));
+    }
+
+    private static long dbSize(RedisTemplate<String, Object> redisTemplate) {
+        return redisTemplate.execute((RedisCallback<Long>) connection -> connection.serverCommands().dbSize());
+    }
+
+    private static String encoding(RedisTemplate<String, Object> redisTemplate, String key) {
+        return String.valueOf(redisTemplate.execute((RedisCallback<Object>) connection ->
+                connection.keyCommands().encodingOf(key.getBytes())));
+    }
+}
@@ -0,0 +1,198 @@
+package com.example.springrediscrac.loadtest;
+
+import com.example.springrediscrac.SpringRedisCracApplication;
+import com.example.springrediscrac.binary.BinaryProtocolServer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import redis.embedded.RedisServer;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares reads over the REST API with reads over the binary protocol.
+ * <p>
+ * The keys of the workload ({@code read-heavy-zipf} by default) are stored once, then each
+ * scenario runs closed-loop with {@code load.protocol.concurrency} clients for
+ * {@code load.protocol.duration} after a warm-up, picking keys from the workload's key
+ * distribution:
+ * <ul>
+ *   <li>{@code rest-get}: {@code GET /api/cache/{key}} over HTTP/1.1</li>
+ *   <li>{@code binary-get}: GET of one key per request</li>
+ *   <li>{@code binary-mget}: MGET of {@code load.protocol.batch-size} keys per request</li>
+ * </ul>
+ * Throughput is reported per request and per key, latency per request.
+ *
+ * <pre>
+ * mvn -Pload-test test-compile exec:java@protocol-benchmark [-Dload.workload=read-heavy-zipf]
+ * </pre>
+ */
+public final class ProtocolBenchmark {
+
+    private static final String KEY_PREFIX = "lt:";
+
+    private ProtocolBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Workload workload = Workload.load(System.getProperty("load.workload", "read-heavy-zipf"));
+        Path outputDirectory = Path.of(System.getProperty("load.output", "target/load-test"));
+        int concurrency = Integer.getInteger("load.protocol.concurrency", 16);
+        int batchSize = Integer.getInteger("load.protocol.batch-size", 50);
+        Duration warmup = Duration.parse("PT" + System.getProperty("load.protocol.warmup", "3s"));
+        Duration duration = Duration.parse("PT" + System.getProperty("load.protocol.duration", "10s"));
+
+        int redisPort = Integer.getInteger("load.redis.port", 0);
+        RedisServer redis = null;
+        if (redisPort == 0) {
+            redisPort = LoadTestRunner.freePort();
+            redis = new RedisServer(redisPort);
+            redis.start();
+        }
+        System.setProperty("server.port", "0");
+        System.setProperty("spring.data.redis.port", Integer.toString(redisPort));
+        System.setProperty("logging.level.com.example.springrediscrac", "WARN");
+        System.setProperty("logging.level.org.springframework.cache", "WARN");
+        System.setProperty("app.warmup.enabled", "false");
+        System.setProperty("app.binary.enabled", "true");
+        System.setProperty("app.binary.port", "0");
+
+        try (ConfigurableApplicationContext application = SpringApplication.run(SpringRedisCracApplication.class, args)) {
+            int httpPort = application.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+            int binaryPort = application.getBean(BinaryProtocolServer.class).getPort();
+            preload(workload, binaryPort);
+
+            URI baseUri = URI.create("http://localhost:" + httpPort);
+            HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            KeyDistribution keys = KeyDistribution.of(workload);
+
+            Map<String, Object> scenarios = new LinkedHashMap<>();
+            scenarios.put("rest-get", run(concurrency, warmup, duration, 1, client -> random -> {
+                HttpRequest request = HttpRequest.newBuilder(baseUri.resolve("/api/cache/" + KEY_PREFIX + keys.next(random)))
+                        .GET().build();
+                if (http.send(request, HttpResponse.BodyHandlers.ofByteArray()).statusCode() != 200) {
+                    throw new IllegalStateException("REST read failed");
+                }
+            }, null));
+            scenarios.put("binary-get", run(concurrency, warmup, duration, 1, client -> random -> {
+                if (client.get(KEY_PREFIX + keys.next(random)) == null) {
+                    throw new IllegalStateException("Binary read missed");
+                }
+            }, binaryPort));
+            scenarios.put("binary-mget", run(concurrency, warmup, duration, batchSize, client -> random -> {
+                List<String> batch = new ArrayList<>(batchSize);
+                for (int i = 0; i < batchSize; i++) {
+                    batch.add(KEY_PREFIX + keys.next(random));
+                }
+                client.mget(batch);
+            }, binaryPort));
+
+            Map<String, Object> report = new LinkedHashMap<>();
+            report.put("workload", workload.describe());
+            report.put("concurrency", concurrency);
+            report.put("batch_size", batchSize);
+            report.put("duration_s", duration.toSeconds());
+            report.put("scenarios", scenarios);
+            Files.createDirectories(outputDirectory);
+            Path file = outputDirectory.resolve("protocol-" + workload.name + ".json");
+            new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file.toFile(), report);
+
+            System.out.printf("%nReads of workload %s with %d clients%n", workload.name, concurrency);
+            System.out.printf("%-12s %12s %12s %10s %10s %10s%n", "scenario", "requests/s", "keys/s",
+                    "p50 us", "p99 us", "p99.9 us");
+            scenarios.forEach((name, value) -> {
+                @SuppressWarnings("unchecked")
+                Map<String, Object> r = (Map<String, Object>) value;
+                System.out.printf("%-12s %12.0f %12.0f %10d %10d %10d%n", name, r.get("requests_per_second"),
+                        r.get("keys_per_second"), r.get("p50_us"), r.get("p99_us"), r.get("p99_9_us"));
+            });
+            System.out.println("Report written to " + file.toAbsolutePath());
+        } finally {
+            if (redis != null) {
+                redis.stop();
+            }
+        }
+    }
+
+    private static void preload(Workload workload, int binaryPort) throws Exception {
+        ValueSizes values = new ValueSizes(workload);
+        SplittableRandom random = new SplittableRandom(workload.seed + 1);
+        try (BinaryCacheClient client = new BinaryCacheClient("localhost", binaryPort)) {
+            for (int key = 0; key < workload.keyCount; key++) {
+                client.set(KEY_PREFIX + key, "\"" + values.nextValue(random) + "\"", 0);
+            }
+        }
+    }
+
+    private static Map<String, Object> run(int concurrency, Duration warmup, Duration duration, int keysPerRequest,
+                                           Scenario scenario, Integer binaryPort) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        long measureFrom = System.nanoTime() + warmup.toNanos();
+        long end = measureFrom + duration.toNanos();
+        try {
+            List<Future<Histogram>> clients = new ArrayList<>();
+            for (int i = 0; i < concurrency; i++) {
+                int clientIndex = i;
+                clients.add(executor.submit(() -> {
+                    Histogram histogram = new Histogram(TimeUnit.MINUTES.toNanos(1), 3);
+                    SplittableRandom random = new SplittableRandom(clientIndex);
+                    try (BinaryCacheClient client = binaryPort != null ? new BinaryCacheClient("localhost", binaryPort) : null) {
+                        Request request = scenario.open(client);
+                        long now;
+                        while ((now = System.nanoTime()) < end) {
+                            request.send(random);
+                            long done = System.nanoTime();
+                            if (now >= measureFrom) {
+                                histogram.recordValue(Math.min(done - now, histogram.getHighestTrackableValue()));
+                            }
+                        }
+                    }
+                    return histogram;
+                }));
+            }
+            Histogram total = new Histogram(TimeUnit.MINUTES.toNanos(1), 3);
+            for (Future<Histogram> client : clients) {
+                total.add(client.get());
+            }
+            double seconds = duration.toNanos() / 1e9;
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("requests", total.getTotalCount());
+            result.put("requests_per_second", total.getTotalCount() / seconds);
+            result.put("keys_per_second", total.getTotalCount() * keysPerRequest / seconds);
+            result.put("p50_us", total.getValueAtPercentile(50) / 1000);
+            result.put("p99_us", total.getValueAtPercentile(99) / 1000);
+            result.put("p99_9_us", total.getValueAtPercentile(99.9) / 1000);
+            result.put("max_us", total.getMaxValue() / 1000);
+            return result;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @FunctionalInterface
+    private interface Scenario {
+        Request open(BinaryCacheClient client);
+    }
+
+    @FunctionalInterface
+    private interface Request {
+        void send(SplittableRandom random) throws Exception;
+    }
+}
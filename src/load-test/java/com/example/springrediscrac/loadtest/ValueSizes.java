@@ -0,0 +1,54 @@
+package com.example.springrediscrac.loadtest;
+
+import java.util.SplittableRandom;
+
+/**
+ * Generates values with sizes drawn from the workload's value size distribution. Values are
+ * slices of one random alphanumeric buffer, so they are cheap to produce and compress like
+ * text.
+ */
+final class ValueSizes {
+
+    private static final String ALPHABET = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+
+    private final Workload workload;
+    private final String buffer;
+
+    ValueSizes(Workload workload) {
+        this.workload = workload;
+        SplittableRandom random = new SplittableRandom(workload.seed);
+        StringBuilder builder = new StringBuilder(workload.valueSizeMax * 2);
+        for (int i = 0; i < workload.valueSizeMax * 2; i++) {
+            builder.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        this.buffer = builder.toString();
+    }
+
+    int nextSize(SplittableRandom random) {
+        switch (workload.valueSizeDistribution) {
+            case "fixed":
+                return workload.valueSize;
+            case "uniform":
+                return workload.valueSizeMin + random.nextInt(workload.valueSizeMax - workload.valueSizeMin + 1);
+            case "lognormal":
+                // values.size is the median
+                double size = workload.valueSize * Math.exp(workload.valueSizeSigma * gaussian(random));
+                return (int) Math.max(workload.valueSizeMin, Math.min(workload.valueSizeMax, size));
+            default:
+                throw new IllegalArgumentException("Unknown value size distribution: " + workload.valueSizeDistribution);
+        }
+    }
+
+    String nextValue(SplittableRandom random) {
+        int size = Math.min(nextSize(random), workload.valueSizeMax);
+        int offset = random.nextInt(buffer.length() - size + 1);
+        return buffer.substring(offset, offset + size);
+    }
+
+    private static double gaussian(SplittableRandom random) {
+        // Box-Muller, SplittableRandom has no nextGaussian on Java 17
+        double u1 = 1 - random.nextDouble();
+        double u2 = random.nextDouble();
+        return Math.sqrt(-2 * Math.log(u1)) * Math.cos(2 * Math.PI * u2);
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.springrediscrac.loadtest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * A workload profile, loaded from {@code load-test/<name>.properties} on the classpath.
+ * Every property can be overridden with a system property of the same name prefixed with
+ * {@code load.}, e.g. {@code -Dload.rate=2000}.
+ */
+final class Workload {
+
+    enum Operation {
+        CACHE_GET("cache-get"),
+        CACHE_SET("cache-set"),
+        CACHE_DELETE("cache-delete"),
+        CATALOG_GET("catalog-get");
+
+        final String id;
+
+        Operation(String id) {
+            this.id = id;
+        }
+    }
+
+    final String name;
+    final long seed;
+    final double rate;
+    final String arrival;
+    final Duration warmup;
+    final Duration duration;
+    final int maxInFlight;
+    final int keyCount;
+    final String keyDistribution;
+    final double zipfExponent;
+    final double hotKeyFraction;
+    final double hotKeyShare;
+    final String valueSizeDistribution;
+    final int valueSize;
+    final int valueSizeMin;
+    final int valueSizeMax;
+    final double valueSizeSigma;
+    final boolean preload;
+    final int[] mix = new int[Operation.values().length];
+
+    private final Properties properties;
+
+    private Workload(String name, Properties properties) {
+        this.name = name;
+        this.properties = properties;
+        this.seed = Long.parseLong(get("seed"));
+        this.rate = Double.parseDouble(get("rate"));
+        this.arrival = get("arrival");
+        this.warmup = Duration.parse("PT" + get("warmup"));
+        this.duration = Duration.parse("PT" + get("duration"));
+        this.maxInFlight = Integer.parseInt(get("max-in-flight"));
+        this.keyCount = Integer.parseInt(get("keys.count"));
+        this.keyDistribution = get("keys.distribution");
+        this.zipfExponent = Double.parseDouble(get("keys.zipf-exponent"));
+        this.hotKeyFraction = Double.parseDouble(get("keys.hot-fraction"));
+        this.hotKeyShare = Double.parseDouble(get("keys.hot-share"));
+        this.valueSizeDistribution = get("values.distribution");
+        this.valueSize = Integer.parseInt(get("values.size"));
+        this.valueSizeMin = Integer.parseInt(get("values.min"));
+        this.valueSizeMax = Integer.parseInt(get("values.max"));
+        this.valueSizeSigma = Double.parseDouble(get("values.sigma"));
+        this.preload = Boolean.parseBoolean(get("keys.preload"));
+        for (Operation operation : Operation.values()) {
+            mix[operation.ordinal()] = Integer.parseInt(get("mix." + operation.id));
+        }
+    }
+
+    static Workload load(String name) throws IOException {
+        Properties properties = new Properties();
+        load(properties, "load-test/defaults.properties");
+        load(properties, "load-test/" + name + ".properties");
+        for (String key : properties.stringPropertyNames()) {
+            String override = System.getProperty("load." + key);
+            if (override != null) {
+                properties.setProperty(key, override);
+            }
+        }
+        return new Workload(name, properties);
+    }
+
+    private static void load(Properties properties, String resource) throws IOException {
+        try (InputStream in = Workload.class.getClassLoader().getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IllegalArgumentException("Workload profile not found: " + resource);
+            }
+            properties.load(in);
+        }
+    }
+
+    private String get(String key) {
+        String value = properties.getProperty(key);
+        if (value == null) {
+            throw new IllegalArgumentException("Missing workload property: " + key);
+        }
+        return value.trim();
+    }
+
+    /**
+     * The effective settings, sorted, so that reports of the same profile can be compared.
+     */
+    Map<String, String> describe() {
+        Map<String, String> description = new LinkedHashMap<>();
+        description.put("name", name);
+        properties.stringPropertyNames().stream().sorted()
+                .forEach(key -> description.put(key, properties.getProperty(key).trim()));
+        return description;
+    }
+}
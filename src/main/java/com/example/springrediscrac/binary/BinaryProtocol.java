@@ -0,0 +1,64 @@
+package com.example.springrediscrac.binary;
+
+import io.netty.buffer.ByteBuf;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Frame layout of the binary cache protocol. All integers are big-endian.
+ * <pre>
+ * request:  u32 length | u8 op     | u32 request id | payload
+ * response: u32 length | u8 status | u32 request id | payload
+ * </pre>
+ * The length counts the bytes after itself. Keys are encoded as {@code u16 length | UTF-8}.
+ * Requests may be pipelined on a connection; responses carry the request id and can arrive in
+ * any order.
+ * <table>
+ * <caption>Operations</caption>
+ * <tr><th>op</th><th>payload</th><th>response</th></tr>
+ * <tr><td>PING</td><td>-</td><td>OK</td></tr>
+ * <tr><td>GET</td><td>key</td><td>OK with the value bytes, or NOT_FOUND</td></tr>
+ * <tr><td>MGET</td><td>u16 count | keys</td><td>an ITEM per key ({@code u16 index | i32 value length,
+ * -1 if missing | value}), streamed as the keys are read, then END ({@code u16 count})</td></tr>
+ * <tr><td>SET</td><td>key | i64 ttl millis, 0 for none | JSON value</td><td>OK</td></tr>
+ * <tr><td>DELETE</td><td>key</td><td>OK, or NOT_FOUND</td></tr>
+ * </table>
+ * Errors are answered with BAD_REQUEST, UNAVAILABLE (Redis unavailable or server overloaded,
+ * safe to retry) or ERROR, each with a UTF-8 message as payload.
+ */
+public final class BinaryProtocol {
+
+    public static final byte OP_PING = 0x00;
+    public static final byte OP_GET = 0x01;
+    public static final byte OP_MGET = 0x02;
+    public static final byte OP_SET = 0x03;
+    public static final byte OP_DELETE = 0x04;
+
+    public static final byte STATUS_OK = 0x00;
+    public static final byte STATUS_NOT_FOUND = 0x01;
+    public static final byte STATUS_ITEM = 0x02;
+    public static final byte STATUS_END = 0x03;
+    public static final byte STATUS_BAD_REQUEST = 0x10;
+    public static final byte STATUS_UNAVAILABLE = 0x11;
+    public static final byte STATUS_ERROR = 0x12;
+
+    /** Bytes of status (or op) and request id that follow the length of every frame. */
+    public static final int HEADER_LENGTH = 5;
+
+    private BinaryProtocol() {
+    }
+
+    public static String readKey(ByteBuf buffer) {
+        int length = buffer.readUnsignedShort();
+        return buffer.readCharSequence(length, StandardCharsets.UTF_8).toString();
+    }
+
+    public static void writeKey(ByteBuf buffer, String key) {
+        byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) {
+            throw new IllegalArgumentException("Key longer than 65535 bytes");
+        }
+        buffer.writeShort(bytes.length);
+        buffer.writeBytes(bytes);
+    }
+}
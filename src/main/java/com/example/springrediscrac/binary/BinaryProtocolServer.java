@@ -0,0 +1,156 @@
+package com.example.springrediscrac.binary;
+
+import com.example.springrediscrac.service.CacheService;
+import com.example.springrediscrac.service.RedisCircuitBreaker;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serves the {@link BinaryProtocol} on a separate port for trusted internal clients.
+ * <p>
+ * Requests go through {@link CacheService} like the REST API, but skip HTTP, the JSON response
+ * envelope and bean validation, and values are returned with the bytes stored in Redis. There is
+ * no authentication, so the port must only be reachable from the internal network.
+ * <p>
+ * As a lifecycle bean the server closes its socket and connections before a CRaC checkpoint
+ * and listens again after restore.
+ */
+@Component
+@ConditionalOnProperty(name = "app.binary.enabled", havingValue = "true")
+public class BinaryProtocolServer implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(BinaryProtocolServer.class);
+
+    @Autowired
+    private CacheService cacheService;
+
+    @Autowired
+    private RedisCircuitBreaker redisCircuitBreaker;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.binary.address:127.0.0.1}")
+    private String address;
+
+    @Value("${app.binary.port:9090}")
+    private int port;
+
+    @Value("${app.binary.max-frame-size:16777216}")
+    private int maxFrameSize;
+
+    private final Settings settings;
+    private final ThreadPoolExecutor executor;
+
+    private volatile EventLoopGroup bossGroup;
+    private volatile EventLoopGroup workerGroup;
+    private volatile Channel serverChannel;
+
+    public BinaryProtocolServer(@Value("${app.binary.worker-threads:32}") int workerThreads,
+                                @Value("${app.binary.queue-size:1024}") int queueSize,
+                                @Value("${app.binary.max-in-flight:128}") int maxInFlight,
+                                @Value("${app.binary.max-keys:1000}") int maxKeys,
+                                @Value("${app.binary.batch-size:100}") int batchSize) {
+        this.settings = new Settings(maxInFlight, maxKeys, batchSize);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workerThreads, workerThreads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueSize), runnable -> {
+                    Thread thread = new Thread(runnable, "binary-worker-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    @Override
+    public void start() {
+        bossGroup = new NioEventLoopGroup(1);
+        workerGroup = new NioEventLoopGroup();
+        try {
+            serverChannel = new ServerBootstrap()
+                    .group(bossGroup, workerGroup)
+                    .channel(NioServerSocketChannel.class)
+                    .childOption(ChannelOption.TCP_NODELAY, true)
+                    .childHandler(new ChannelInitializer<SocketChannel>() {
+                        @Override
+                        protected void initChannel(SocketChannel channel) {
+                            channel.pipeline().addLast(
+                                    new LengthFieldBasedFrameDecoder(maxFrameSize, 0, 4, 0, 4),
+                                    new BinaryRequestHandler(cacheService, redisCircuitBreaker, objectMapper,
+                                            executor, settings));
+                        }
+                    })
+                    .bind(new InetSocketAddress(address, port))
+                    .syncUninterruptibly()
+                    .channel();
+            logger.info("Binary protocol listening on {}", serverChannel.localAddress());
+        } catch (RuntimeException e) {
+            shutdownGroups();
+            throw e;
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (serverChannel != null) {
+            serverChannel.close().syncUninterruptibly();
+            serverChannel = null;
+        }
+        shutdownGroups();
+        logger.info("Binary protocol stopped");
+    }
+
+    @Override
+    public boolean isRunning() {
+        return serverChannel != null && serverChannel.isOpen();
+    }
+
+    /**
+     * Returns the bound port, which differs from the configured one when that is 0.
+     */
+    public int getPort() {
+        return serverChannel != null ? ((InetSocketAddress) serverChannel.localAddress()).getPort() : port;
+    }
+
+    private void shutdownGroups() {
+        // Closes the client connections along with the event loops
+        if (workerGroup != null) {
+            workerGroup.shutdownGracefully(0, 2, TimeUnit.SECONDS).syncUninterruptibly();
+            workerGroup = null;
+        }
+        if (bossGroup != null) {
+            bossGroup.shutdownGracefully(0, 2, TimeUnit.SECONDS).syncUninterruptibly();
+            bossGroup = null;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    record Settings(int maxInFlight, int maxKeys, int batchSize) {
+    }
+}
@@ -0,0 +1,231 @@
+package com.example.springrediscrac.binary;
+
+import com.example.springrediscrac.model.CacheItem;
+import com.example.springrediscrac.service.CacheService;
+import com.example.springrediscrac.service.RedisCircuitBreaker;
+import com.example.springrediscrac.service.RedisCircuitBreaker.RedisUnavailableException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.example.springrediscrac.binary.BinaryProtocol.HEADER_LENGTH;
+import static com.example.springrediscrac.binary.BinaryProtocol.OP_DELETE;
+import static com.example.springrediscrac.binary.BinaryProtocol.OP_GET;
+import static com.example.springrediscrac.binary.BinaryProtocol.OP_MGET;
+import static com.example.springrediscrac.binary.BinaryProtocol.OP_PING;
+import static com.example.springrediscrac.binary.BinaryProtocol.OP_SET;
+import static com.example.springrediscrac.binary.BinaryProtocol.STATUS_BAD_REQUEST;
+import static com.example.springrediscrac.binary.BinaryProtocol.STATUS_END;
+import static com.example.springrediscrac.binary.BinaryProtocol.STATUS_ERROR;
+import static com.example.springrediscrac.binary.BinaryProtocol.STATUS_ITEM;
+import static com.example.springrediscrac.binary.BinaryProtocol.STATUS_NOT_FOUND;
+import static com.example.springrediscrac.binary.BinaryProtocol.STATUS_OK;
+import static com.example.springrediscrac.binary.BinaryProtocol.STATUS_UNAVAILABLE;
+import static com.example.springrediscrac.binary.BinaryProtocol.readKey;
+
+/**
+ * Serves the requests of one connection. Frames are decoded on the event loop, where PING is
+ * also answered; the blocking Redis calls run on the shared worker pool. While more than
+ * {@code maxInFlight} requests of the connection are pending, the connection stops reading,
+ * which pushes back on the client through TCP flow control.
+ */
+class BinaryRequestHandler extends SimpleChannelInboundHandler<ByteBuf> {
+
+    private static final Logger logger = LoggerFactory.getLogger(BinaryRequestHandler.class);
+
+    private final CacheService cacheService;
+    private final RedisCircuitBreaker redisCircuitBreaker;
+    private final ObjectMapper objectMapper;
+    private final ExecutorService executor;
+    private final BinaryProtocolServer.Settings settings;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    BinaryRequestHandler(CacheService cacheService, RedisCircuitBreaker redisCircuitBreaker, ObjectMapper objectMapper,
+                         ExecutorService executor, BinaryProtocolServer.Settings settings) {
+        this.cacheService = cacheService;
+        this.redisCircuitBreaker = redisCircuitBreaker;
+        this.objectMapper = objectMapper;
+        this.executor = executor;
+        this.settings = settings;
+    }
+
+    @Override
+    protected void channelRead0(ChannelHandlerContext ctx, ByteBuf frame) {
+        if (frame.readableBytes() < HEADER_LENGTH) {
+            // No request id to answer with, 0 stands in for it
+            respond(ctx, STATUS_BAD_REQUEST, 0, message("Frame shorter than its " + HEADER_LENGTH + "-byte header"));
+            return;
+        }
+        byte op = frame.readByte();
+        int id = frame.readInt();
+        if (op == OP_PING) {
+            // Answered on the event loop, so it reflects the connection and not the worker pool
+            respond(ctx, STATUS_OK, id, Unpooled.EMPTY_BUFFER);
+            return;
+        }
+        Runnable task;
+        try {
+            task = decode(ctx, op, id, frame);
+        } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+            respond(ctx, STATUS_BAD_REQUEST, id, message(e.getMessage() != null ? e.getMessage() : "Malformed frame"));
+            return;
+        }
+        if (inFlight.incrementAndGet() > settings.maxInFlight()) {
+            ctx.channel().config().setAutoRead(false);
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    task.run();
+                } catch (RedisUnavailableException e) {
+                    respond(ctx, STATUS_UNAVAILABLE, id, message(e.getMessage()));
+                } catch (RuntimeException e) {
+                    logger.error("Binary request {} failed", id, e);
+                    respond(ctx, STATUS_ERROR, id, message("Failed to process request"));
+                } finally {
+                    completed(ctx);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            respond(ctx, STATUS_UNAVAILABLE, id, message("Server overloaded"));
+            completed(ctx);
+        }
+    }
+
+    /**
+     * Reads the payload while the frame is still retained and returns the work to run on the pool.
+     */
+    private Runnable decode(ChannelHandlerContext ctx, byte op, int id, ByteBuf frame) {
+        switch (op) {
+            case OP_GET: {
+                String key = key(frame);
+                return () -> {
+                    byte[] value = redisCircuitBreaker.call(() -> cacheService.getRawValues(List.of(key))).get(0);
+                    respond(ctx, value != null ? STATUS_OK : STATUS_NOT_FOUND, id,
+                            value != null ? Unpooled.wrappedBuffer(value) : Unpooled.EMPTY_BUFFER);
+                };
+            }
+            case OP_MGET: {
+                int count = frame.readUnsignedShort();
+                if (count > settings.maxKeys()) {
+                    throw new IllegalArgumentException("At most " + settings.maxKeys() + " keys per MGET");
+                }
+                List<String> keys = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    keys.add(key(frame));
+                }
+                return () -> multiGet(ctx, id, keys);
+            }
+            case OP_SET: {
+                String key = key(frame);
+                long ttlMillis = frame.readLong();
+                if (ttlMillis < 0) {
+                    throw new IllegalArgumentException("TTL must not be negative");
+                }
+                byte[] json = ByteBufUtil.getBytes(frame);
+                return () -> {
+                    Object value;
+                    try {
+                        value = objectMapper.readValue(json, Object.class);
+                    } catch (JsonProcessingException e) {
+                        respond(ctx, STATUS_BAD_REQUEST, id, message("Value is not valid JSON"));
+                        return;
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    redisCircuitBreaker.call(() -> {
+                        if (ttlMillis > 0) {
+                            cacheService.setValueWithTTL(key, value, ttlMillis, TimeUnit.MILLISECONDS);
+                        } else {
+                            cacheService.setValue(new CacheItem(key, value));
+                        }
+                        return null;
+                    });
+                    respond(ctx, STATUS_OK, id, Unpooled.EMPTY_BUFFER);
+                };
+            }
+            case OP_DELETE: {
+                String key = key(frame);
+                return () -> {
+                    boolean deleted = redisCircuitBreaker.call(() -> cacheService.deleteValue(key));
+                    respond(ctx, deleted ? STATUS_OK : STATUS_NOT_FOUND, id, Unpooled.EMPTY_BUFFER);
+                };
+            }
+            default:
+                throw new IllegalArgumentException("Unknown op " + op);
+        }
+    }
+
+    /**
+     * Reads the keys in batches of one pipeline each and streams the items of a batch as soon as
+     * it is read, so the first values reach the client before the last keys are fetched.
+     */
+    private void multiGet(ChannelHandlerContext ctx, int id, List<String> keys) {
+        for (int from = 0; from < keys.size(); from += settings.batchSize()) {
+            List<String> batch = keys.subList(from, Math.min(from + settings.batchSize(), keys.size()));
+            List<byte[]> values = redisCircuitBreaker.call(() -> cacheService.getRawValues(batch));
+            for (int i = 0; i < values.size(); i++) {
+                byte[] value = values.get(i);
+                ByteBuf item = ctx.alloc().buffer(6);
+                item.writeShort(from + i);
+                item.writeInt(value != null ? value.length : -1);
+                ctx.write(frame(ctx, STATUS_ITEM, id, value != null
+                        ? Unpooled.wrappedBuffer(item, Unpooled.wrappedBuffer(value)) : item));
+            }
+            ctx.flush();
+        }
+        respond(ctx, STATUS_END, id, ctx.alloc().buffer(2).writeShort(keys.size()));
+    }
+
+    private void completed(ChannelHandlerContext ctx) {
+        if (inFlight.decrementAndGet() == settings.maxInFlight() / 2) {
+            ctx.channel().config().setAutoRead(true);
+        }
+    }
+
+    private static void respond(ChannelHandlerContext ctx, byte status, int id, ByteBuf payload) {
+        ctx.writeAndFlush(frame(ctx, status, id, payload));
+    }
+
+    private static ByteBuf frame(ChannelHandlerContext ctx, byte status, int id, ByteBuf payload) {
+        ByteBuf header = ctx.alloc().buffer(4 + HEADER_LENGTH);
+        header.writeInt(HEADER_LENGTH + payload.readableBytes());
+        header.writeByte(status);
+        header.writeInt(id);
+        return Unpooled.wrappedBuffer(header, payload);
+    }
+
+    private static String key(ByteBuf frame) {
+        String key = readKey(frame);
+        if (key.isBlank()) {
+            throw new IllegalArgumentException("Key cannot be blank");
+        }
+        return key;
+    }
+
+    private static ByteBuf message(String message) {
+        return Unpooled.wrappedBuffer(message.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+        logger.warn("Closing binary protocol connection from {}: {}", ctx.channel().remoteAddress(), cause.getMessage());
+        ctx.close();
+    }
+}
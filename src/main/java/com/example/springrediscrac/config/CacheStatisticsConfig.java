@@ -0,0 +1,42 @@
+package com.example.springrediscrac.config;
+
+import com.example.springrediscrac.stats.KeyAccessStatistics;
+import com.example.springrediscrac.stats.KeyspaceEventListener;
+import com.example.springrediscrac.stats.StatisticsRedisCacheWriter;
+import org.springframework.boot.autoconfigure.cache.RedisCacheManagerBuilderCustomizer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.PatternTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.util.List;
+
+/**
+ * Wires the cache access statistics into the Redis cache manager and subscribes to the
+ * expiration and eviction events.
+ */
+@Configuration
+public class CacheStatisticsConfig {
+
+    @Bean
+    public RedisCacheManagerBuilderCustomizer statisticsCacheWriterCustomizer(RedisConnectionFactory connectionFactory,
+                                                                             KeyAccessStatistics keyAccessStatistics) {
+        return builder -> builder.cacheWriter(new StatisticsRedisCacheWriter(
+                RedisCacheWriter.nonLockingRedisCacheWriter(connectionFactory), keyAccessStatistics));
+    }
+
+    // A lifecycle bean, so the subscription is closed before a CRaC checkpoint and reopened on restore
+    @Bean
+    @ConditionalOnProperty(name = "app.cache.stats.keyspace-notifications", havingValue = "true", matchIfMissing = true)
+    public RedisMessageListenerContainer keyspaceEventListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                        KeyspaceEventListener listener) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(listener, List.of(
+                new PatternTopic("__keyevent@*__:expired"), new PatternTopic("__keyevent@*__:evicted")));
+        return container;
+    }
+}
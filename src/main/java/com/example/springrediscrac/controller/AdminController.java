@@ -1,17 +1,19 @@
 package com.example.springrediscrac.controller;
 
+import com.example.springrediscrac.crac.CheckpointOrchestrator;
+import com.example.springrediscrac.service.CacheWarmupService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.ExampleObject;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
-import org.crac.CheckpointException;
-import org.crac.Core;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
@@ -26,22 +28,28 @@ public class AdminController {
 
     private static final Logger logger = LoggerFactory.getLogger(AdminController.class);
 
+    @Autowired
+    private CheckpointOrchestrator checkpointOrchestrator;
+
+    @Autowired
+    private CacheWarmupService cacheWarmupService;
+
     @PostMapping("/checkpoint")
     @Operation(
         summary = "Trigger CRaC checkpoint",
-        description = "Initiates a CRaC checkpoint operation. The application will save its current state and terminate. Use with caution in production environments.",
+        description = "Starts an orchestrated CRaC checkpoint in the background: readiness is switched to OUT_OF_SERVICE, in-flight requests are drained up to app.crac.drain-timeout, the registered resources are notified and the checkpoint is taken. After restore, Redis is re-validated and the cache warmed up before readiness is switched back. Progress is reported by GET /admin/checkpoint.",
         tags = {"CRaC Administration"}
     )
     @ApiResponses(value = {
-        @ApiResponse(responseCode = "500", description = "Checkpoint failed",
+        @ApiResponse(responseCode = "202", description = "Checkpoint started",
             content = @Content(mediaType = "application/json",
-                examples = @ExampleObject(value = "{\"status\":\"FAILED\",\"error\":\"Checkpoint failed: Connection refused\",\"exception\":\"CheckpointException\"}"))),
-        @ApiResponse(responseCode = "501", description = "CRaC not supported in current environment",
+                examples = @ExampleObject(value = "{\"trigger\":\"api\",\"phase\":\"REQUESTED\",\"requested_at\":\"2024-01-15T10:30:00Z\",\"in_progress\":true,\"in_flight\":1}"))),
+        @ApiResponse(responseCode = "409", description = "A checkpoint is already in progress",
             content = @Content(mediaType = "application/json",
-                examples = @ExampleObject(value = "{\"status\":\"UNSUPPORTED\",\"error\":\"CRaC checkpoint not supported in current environment\",\"message\":\"Make sure you're running with CRaC-enabled JDK\"}"))),
-        @ApiResponse(responseCode = "200", description = "This response should not occur in normal operation",
+                examples = @ExampleObject(value = "{\"status\":\"IN_PROGRESS\",\"error\":\"A checkpoint is already in progress\"}"))),
+        @ApiResponse(responseCode = "501", description = "CRaC not supported in current environment",
             content = @Content(mediaType = "application/json",
-                examples = @ExampleObject(value = "{\"status\":\"UNEXPECTED_RETURN\",\"message\":\"Checkpoint returned unexpectedly\"}")))
+                examples = @ExampleObject(value = "{\"status\":\"UNSUPPORTED\",\"error\":\"CRaC checkpoint not supported in current environment\",\"message\":\"Make sure you're running with CRaC-enabled JDK\"}")))
     })
     public ResponseEntity<Map<String, Object>> triggerCheckpoint() {
         logger.info("Checkpoint trigger requested");
@@ -49,23 +57,14 @@ public class AdminController {
         Map<String, Object> response = new HashMap<>();
         
         try {
-            logger.info("Initiating CRaC checkpoint...");
-            Core.checkpointRestore();
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(checkpointOrchestrator.checkpoint());
             
-            // This line should not be reached in normal checkpoint flow
-            response.put("status", "UNEXPECTED_RETURN");
-            response.put("message", "Checkpoint returned unexpectedly");
-            logger.warn("Checkpoint returned unexpectedly - this should not happen");
+        } catch (IllegalStateException e) {
+            logger.warn("Checkpoint rejected: {}", e.getMessage());
+            response.put("status", "IN_PROGRESS");
+            response.put("error", e.getMessage());
             
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
-            
-        } catch (CheckpointException e) {
-            logger.error("Checkpoint failed", e);
-            response.put("status", "FAILED");
-            response.put("error", "Checkpoint failed: " + e.getMessage());
-            response.put("exception", e.getClass().getSimpleName());
-            
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
             
         } catch (UnsupportedOperationException e) {
             logger.warn("CRaC not supported in current environment", e);
@@ -84,4 +83,36 @@ public class AdminController {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
         }
     }
+
+    @GetMapping("/checkpoint")
+    @Operation(
+        summary = "Get checkpoint status",
+        description = "Returns the phase and phase durations of the last checkpoint, which survive the restore. The same durations are published as the crac.phase.duration metric.",
+        tags = {"CRaC Administration"}
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Status of the last checkpoint",
+            content = @Content(mediaType = "application/json",
+                examples = @ExampleObject(value = "{\"trigger\":\"api\",\"phase\":\"COMPLETED\",\"drain_ms\":112,\"checkpoint_ms\":420,\"restore_ms\":95,\"first_request_ms\":140,\"restored_at\":\"2024-01-15T10:35:00Z\",\"in_progress\":false,\"in_flight\":1}")))
+    })
+    public ResponseEntity<Map<String, Object>> getCheckpointStatus() {
+        return ResponseEntity.ok(checkpointOrchestrator.status());
+    }
+
+    @PostMapping("/warmup")
+    @Operation(
+        summary = "Warm up catalog cache",
+        description = "Persists the current access counts and pre-loads the hottest catalog ids into the cache within the configured time budget. The same warm-up runs automatically on startup and after a CRaC restore.",
+        tags = {"CRaC Administration"}
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Warm-up finished",
+            content = @Content(mediaType = "application/json",
+                examples = @ExampleObject(value = "{\"trigger\":\"manual\",\"status\":\"COMPLETED\",\"hot_ids\":120,\"already_cached\":110,\"loaded\":10,\"elapsed_ms\":1034}")))
+    })
+    public ResponseEntity<Map<String, Object>> triggerWarmup() {
+        logger.info("Cache warm-up requested");
+        cacheWarmupService.persistHotKeys();
+        return ResponseEntity.ok(cacheWarmupService.warmUp("manual"));
+    }
 }
\ No newline at end of file
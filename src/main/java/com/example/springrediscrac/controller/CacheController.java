@@ -1,7 +1,12 @@
 package com.example.springrediscrac.controller;
 
+import com.example.springrediscrac.logging.LogValues;
 import com.example.springrediscrac.model.CacheItem;
 import com.example.springrediscrac.service.CacheService;
+import com.example.springrediscrac.service.DegradedModeService;
+import com.example.springrediscrac.service.RedisCircuitBreaker;
+import com.example.springrediscrac.service.RedisCircuitBreaker.RedisUnavailableException;
+import com.example.springrediscrac.service.TagIndexService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -12,11 +17,17 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import jakarta.validation.Valid;
+import java.io.InputStream;
+import java.time.Instant;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
@@ -29,41 +40,47 @@ public class CacheController {
 
     private static final Logger logger = LoggerFactory.getLogger(CacheController.class);
 
+    // Warning header marking values served from the local snapshot (RFC 7234)
+    private static final String STALE_WARNING = "110 - \"Response is Stale\"";
+
     @Autowired
     private CacheService cacheService;
 
+    @Autowired
+    private RedisCircuitBreaker redisCircuitBreaker;
+
+    @Autowired
+    private DegradedModeService degradedModeService;
+
+    @Autowired
+    private LogValues logValues;
+
     @GetMapping("/{key}")
     @Operation(
         summary = "Retrieve cached value by key",
-        description = "Retrieves a cached value from Redis using the specified key. Returns the value if it exists, otherwise returns a 404 Not Found response."
+        description = "Retrieves a cached value from Redis using the specified key. Returns the value if it exists, otherwise returns a 404 Not Found response. The entry version is returned as ETag; a matching If-None-Match header is answered with 304 Not Modified from the entry metadata alone, without reading the value. While Redis is unavailable, the last value read by this instance is returned with stale=true and a Warning header."
     )
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Value found and returned successfully",
             content = @Content(mediaType = "application/json",
-                examples = @ExampleObject(value = "{\"key\":\"test\",\"value\":\"cached data\",\"exists\":true}"))),
+                examples = @ExampleObject(value = "{\"key\":\"test\",\"value\":\"cached data\",\"exists\":true,\"version\":42,\"created_at\":\"2024-01-01T12:00:00Z\",\"updated_at\":\"2024-01-01T12:30:00Z\"}"))),
+        @ApiResponse(responseCode = "304", description = "Value has not changed since the version given in If-None-Match"),
         @ApiResponse(responseCode = "404", description = "Key not found in cache"),
-        @ApiResponse(responseCode = "500", description = "Internal server error occurred")
+        @ApiResponse(responseCode = "500", description = "Internal server error occurred"),
+        @ApiResponse(responseCode = "503", description = "Redis is unavailable and no local copy of the value exists")
     })
     public ResponseEntity<Map<String, Object>> getValue(
         @Parameter(description = "The cache key to retrieve", example = "user:123")
-        @PathVariable String key) {
+        @PathVariable String key,
+        @Parameter(description = "ETag of the version the client already has", example = "\"42\"")
+        @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
         logger.info("GET request for key: {}", key);
         
         try {
-            Object value = cacheService.getValue(key);
-            Map<String, Object> response = new HashMap<>();
-            
-            if (value != null) {
-                response.put("key", key);
-                response.put("value", value);
-                response.put("exists", true);
-                return ResponseEntity.ok(response);
-            } else {
-                response.put("key", key);
-                response.put("value", null);
-                response.put("exists", false);
-                return ResponseEntity.notFound().build();
-            }
+            return redisCircuitBreaker.call(() -> readValue(key, ifNoneMatch));
+        } catch (RedisUnavailableException e) {
+            logger.warn("Serving key: {} from local snapshot: {}", key, e.getMessage());
+            return staleValue(key);
         } catch (Exception e) {
             logger.error("Error retrieving value for key: {}", key, e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -71,32 +88,129 @@ public class CacheController {
         }
     }
 
+    private ResponseEntity<Map<String, Object>> readValue(String key, String ifNoneMatch) {
+        // Read the version before the value so a concurrent write can only make the ETag older
+        CacheService.Metadata metadata = cacheService.getMetadata(key);
+        Long version = metadata != null ? metadata.version() : null;
+        if (version != null && ifNoneMatch != null && etagMatches(ifNoneMatch, version)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag(version)).build();
+        }
+
+        Object value = cacheService.getValue(key);
+        if (value == null) {
+            degradedModeService.forget(CacheService.CACHE_NAME, key);
+            return ResponseEntity.notFound().build();
+        }
+        degradedModeService.remember(CacheService.CACHE_NAME, key, value, version);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("key", key);
+        response.put("value", value);
+        response.put("exists", true);
+        if (metadata == null) {
+            return ResponseEntity.ok(response);
+        }
+        response.put("version", version);
+        if (metadata.createdAt() != null) {
+            response.put("created_at", Instant.ofEpochMilli(metadata.createdAt()).toString());
+        }
+        if (metadata.updatedAt() != null) {
+            response.put("updated_at", Instant.ofEpochMilli(metadata.updatedAt()).toString());
+        }
+        return ResponseEntity.ok().eTag(etag(version)).body(response);
+    }
+
+    private ResponseEntity<Map<String, Object>> staleValue(String key) {
+        DegradedModeService.Snapshot snapshot = degradedModeService.lookup(CacheService.CACHE_NAME, key);
+        if (snapshot == null) {
+            return unavailable(key);
+        }
+        Map<String, Object> response = new HashMap<>();
+        response.put("key", key);
+        response.put("value", snapshot.getValue());
+        response.put("exists", true);
+        response.put("stale", true);
+        response.put("cached_at", Instant.ofEpochMilli(snapshot.getCachedAt()).toString());
+        if (snapshot.getVersion() != null) {
+            response.put("version", snapshot.getVersion());
+        }
+        return ResponseEntity.ok().header(HttpHeaders.WARNING, STALE_WARNING).body(response);
+    }
+
+    @GetMapping(value = "/{key}/raw", produces = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(
+        summary = "Stream raw cached value by key",
+        description = "Streams the JSON form of a cached value without wrapping it. Large values that are stored compressed in chunks are decompressed and written to the response chunk by chunk, so they are never fully materialized in memory."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Value streamed successfully",
+            content = @Content(mediaType = "application/json",
+                examples = @ExampleObject(value = "{\"name\":\"John Doe\",\"orders\":[1,2,3]}"))),
+        @ApiResponse(responseCode = "404", description = "Key not found in cache"),
+        @ApiResponse(responseCode = "500", description = "Internal server error occurred")
+    })
+    public ResponseEntity<StreamingResponseBody> getRawValue(
+        @Parameter(description = "The cache key to stream", example = "user:123")
+        @PathVariable String key) {
+        logger.info("GET raw request for key: {}", key);
+
+        try {
+            InputStream in = cacheService.openValueStream(key);
+            if (in == null) {
+                return ResponseEntity.notFound().build();
+            }
+            StreamingResponseBody body = out -> {
+                try (in) {
+                    in.transferTo(out);
+                }
+            };
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+        } catch (Exception e) {
+            logger.error("Error streaming value for key: {}", key, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
     @PostMapping
     @Operation(
         summary = "Store a new cache item",
-        description = "Stores a new key-value pair in the Redis cache. If the key already exists, it will be overwritten."
+        description = "Stores a new key-value pair in the Redis cache. If the key already exists, it will be overwritten. While Redis is unavailable the write is queued and replayed once Redis is back."
     )
     @ApiResponses(value = {
         @ApiResponse(responseCode = "201", description = "Cache item created successfully",
             content = @Content(mediaType = "application/json",
-                examples = @ExampleObject(value = "{\"key\":\"test\",\"value\":\"data\",\"created\":true,\"timestamp\":\"2024-01-01T10:00:00\"}"))),
+                examples = @ExampleObject(value = "{\"key\":\"test\",\"value\":\"data\",\"created\":true,\"version\":42,\"timestamp\":\"2024-01-01T10:00:00\"}"))),
+        @ApiResponse(responseCode = "202", description = "Redis is unavailable, the write was queued for replay",
+            content = @Content(mediaType = "application/json",
+                examples = @ExampleObject(value = "{\"key\":\"test\",\"queued\":true}"))),
         @ApiResponse(responseCode = "400", description = "Invalid request body"),
-        @ApiResponse(responseCode = "500", description = "Internal server error occurred")
+        @ApiResponse(responseCode = "500", description = "Internal server error occurred"),
+        @ApiResponse(responseCode = "503", description = "Redis is unavailable and the write queue is full")
     })
     public ResponseEntity<Map<String, Object>> setValue(
         @Parameter(description = "Cache item containing key and value", required = true)
         @Valid @RequestBody CacheItem cacheItem) {
-        logger.info("POST request to set key: {} with value: {}", cacheItem.getKey(), cacheItem.getValue());
+        logger.info("POST request to set key: {} with value: {}", cacheItem.getKey(), logValues.of(cacheItem.getValue()));
         
+        if (!validTags(cacheItem.getTags())) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "Tags must be non-blank and must not contain commas", "key", cacheItem.getKey()));
+        }
+
         try {
-            CacheItem stored = cacheService.setValue(cacheItem);
+            CacheItem stored = degradedModeService.write(() -> cacheService.setValue(cacheItem));
+            degradedModeService.remember(CacheService.CACHE_NAME, stored.getKey(), stored.getValue(), stored.getVersion());
             Map<String, Object> response = new HashMap<>();
             response.put("key", stored.getKey());
             response.put("value", stored.getValue());
             response.put("created", true);
+            response.put("version", stored.getVersion());
             response.put("timestamp", stored.getCreatedAt());
             
-            return ResponseEntity.status(HttpStatus.CREATED).body(response);
+            return ResponseEntity.status(HttpStatus.CREATED).eTag(etag(stored.getVersion())).body(response);
+        } catch (RedisUnavailableException e) {
+            degradedModeService.remember(CacheService.CACHE_NAME, cacheItem.getKey(), cacheItem.getValue(), null);
+            return queued(cacheItem.getKey(), "SET " + cacheItem.getKey(), () -> cacheService.setValue(cacheItem));
         } catch (Exception e) {
             logger.error("Error storing value for key: {}", cacheItem.getKey(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -107,14 +221,16 @@ public class CacheController {
     @PostMapping("/ttl")
     @Operation(
         summary = "Store cache item with TTL",
-        description = "Stores a key-value pair in the Redis cache with a specified Time-To-Live (TTL). The item will be automatically removed after the TTL expires."
+        description = "Stores a key-value pair in the Redis cache with a specified Time-To-Live (TTL). The item will be automatically removed after the TTL expires. With a jitter policy (app.cache.ttl.jitter) the TTL is shortened by a random amount; applied_ttl_ms is the TTL actually set."
     )
     @ApiResponses(value = {
         @ApiResponse(responseCode = "201", description = "Cache item with TTL created successfully",
             content = @Content(mediaType = "application/json",
-                examples = @ExampleObject(value = "{\"key\":\"session:123\",\"value\":\"user data\",\"ttl\":300,\"unit\":\"SECONDS\",\"created\":true}"))),
+                examples = @ExampleObject(value = "{\"key\":\"session:123\",\"value\":\"user data\",\"ttl\":300,\"unit\":\"SECONDS\",\"applied_ttl_ms\":287412,\"created\":true}"))),
+        @ApiResponse(responseCode = "202", description = "Redis is unavailable, the write was queued for replay; the TTL starts when it is replayed"),
         @ApiResponse(responseCode = "400", description = "Invalid parameters"),
-        @ApiResponse(responseCode = "500", description = "Internal server error occurred")
+        @ApiResponse(responseCode = "500", description = "Internal server error occurred"),
+        @ApiResponse(responseCode = "503", description = "Redis is unavailable and the write queue is full")
     })
     public ResponseEntity<Map<String, Object>> setValueWithTTL(
             @Parameter(description = "The cache key", example = "session:123")
@@ -124,22 +240,43 @@ public class CacheController {
             @Parameter(description = "Time to live duration", example = "300")
             @RequestParam(defaultValue = "300") long ttl,
             @Parameter(description = "Time unit for TTL", example = "SECONDS")
-            @RequestParam(defaultValue = "SECONDS") String unit) {
+            @RequestParam(defaultValue = "SECONDS") String unit,
+            @Parameter(description = "Tags for group invalidation", example = "tenant:acme")
+            @RequestParam(required = false) Set<String> tags) {
         
         logger.info("POST request to set key: {} with TTL: {} {}", key, ttl, unit);
         
+        if (!validTags(tags)) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "Tags must be non-blank and must not contain commas", "key", key));
+        }
+
+        TimeUnit timeUnit;
         try {
-            TimeUnit timeUnit = TimeUnit.valueOf(unit.toUpperCase());
-            cacheService.setValueWithTTL(key, value, ttl, timeUnit);
+            timeUnit = TimeUnit.valueOf(unit.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "Invalid time unit: " + unit, "key", key));
+        }
+        Set<String> entryTags = tags != null ? tags : Set.of();
+
+        try {
+            long appliedTtl = degradedModeService.write(
+                    () -> cacheService.setValueWithTTL(key, value, ttl, timeUnit, entryTags));
+            degradedModeService.remember(CacheService.CACHE_NAME, key, value, null);
             
             Map<String, Object> response = new HashMap<>();
             response.put("key", key);
             response.put("value", value);
             response.put("ttl", ttl);
             response.put("unit", unit);
+            response.put("applied_ttl_ms", appliedTtl);
             response.put("created", true);
             
             return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        } catch (RedisUnavailableException e) {
+            degradedModeService.remember(CacheService.CACHE_NAME, key, value, null);
+            return queued(key, "SET_TTL " + key, () -> cacheService.setValueWithTTL(key, value, ttl, timeUnit, entryTags));
         } catch (Exception e) {
             logger.error("Error storing value with TTL for key: {}", key, e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -150,41 +287,69 @@ public class CacheController {
     @PutMapping("/{key}")
     @Operation(
         summary = "Update existing cache item",
-        description = "Updates the value of an existing cache item. Returns 404 if the key does not exist."
+        description = "Updates the value of an existing cache item. Returns 404 if the key does not exist. When an If-Match header is given, the update is only applied if the entry still has that version (optimistic concurrency). While Redis is unavailable, unconditional updates are queued for replay and conditional ones are rejected."
     )
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Cache item updated successfully",
             content = @Content(mediaType = "application/json",
-                examples = @ExampleObject(value = "{\"key\":\"test\",\"value\":\"updated data\",\"updated\":true}"))),
+                examples = @ExampleObject(value = "{\"key\":\"test\",\"value\":\"updated data\",\"updated\":true,\"version\":43}"))),
         @ApiResponse(responseCode = "400", description = "Invalid request body - value is required"),
         @ApiResponse(responseCode = "404", description = "Key not found in cache"),
-        @ApiResponse(responseCode = "500", description = "Internal server error occurred")
+        @ApiResponse(responseCode = "202", description = "Redis is unavailable, the update was queued for replay"),
+        @ApiResponse(responseCode = "412", description = "Entry was modified since the version given in If-Match"),
+        @ApiResponse(responseCode = "500", description = "Internal server error occurred"),
+        @ApiResponse(responseCode = "503", description = "Redis is unavailable and the update is conditional or the write queue is full")
     })
     public ResponseEntity<Map<String, Object>> updateValue(
         @Parameter(description = "The cache key to update", example = "user:123")
         @PathVariable String key,
         @Parameter(description = "Request body containing the new value")
-        @RequestBody Map<String, Object> payload) {
+        @RequestBody Map<String, Object> payload,
+        @Parameter(description = "ETag of the version the update is based on", example = "\"42\"")
+        @RequestHeader(value = "If-Match", required = false) String ifMatch) {
         logger.info("PUT request to update key: {}", key);
         
-        try {
-            Object value = payload.get("value");
-            if (value == null) {
+        Object value = payload.get("value");
+        if (value == null) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "Value is required", "key", key));
+        }
+
+        Long expectedVersion = null;
+        if (ifMatch != null && !"*".equals(ifMatch.trim())) {
+            expectedVersion = parseEtag(ifMatch);
+            if (expectedVersion == null) {
                 return ResponseEntity.badRequest()
-                        .body(Map.of("error", "Value is required", "key", key));
+                        .body(Map.of("error", "Invalid If-Match header", "key", key));
             }
-            
-            if (!cacheService.hasKey(key)) {
+        }
+        Long expected = expectedVersion;
+
+        try {
+            Long version = degradedModeService.write(() -> cacheService.compareAndUpdate(key, value, expected));
+            if (version == null) {
                 return ResponseEntity.notFound().build();
             }
-            
-            Object updatedValue = cacheService.updateValue(key, value);
+            degradedModeService.remember(CacheService.CACHE_NAME, key, value, version);
+
             Map<String, Object> response = new HashMap<>();
             response.put("key", key);
-            response.put("value", updatedValue);
+            response.put("value", value);
             response.put("updated", true);
+            response.put("version", version);
             
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok().eTag(etag(version)).body(response);
+        } catch (OptimisticLockingFailureException e) {
+            logger.info("Rejected update for key: {}: {}", key, e.getMessage());
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED)
+                    .body(Map.of("error", "Value was modified concurrently", "key", key));
+        } catch (RedisUnavailableException e) {
+            if (expected != null) {
+                // The version cannot be checked without Redis
+                return unavailable(key);
+            }
+            degradedModeService.remember(CacheService.CACHE_NAME, key, value, null);
+            return queued(key, "UPDATE " + key, () -> cacheService.compareAndUpdate(key, value, null));
         } catch (Exception e) {
             logger.error("Error updating value for key: {}", key, e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -195,14 +360,16 @@ public class CacheController {
     @DeleteMapping("/{key}")
     @Operation(
         summary = "Delete cache item by key",
-        description = "Removes a cache item from Redis using the specified key. Returns 404 if the key does not exist."
+        description = "Removes a cache item from Redis using the specified key. Returns 404 if the key does not exist. While Redis is unavailable the delete is queued for replay."
     )
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Cache item deleted successfully",
             content = @Content(mediaType = "application/json",
                 examples = @ExampleObject(value = "{\"key\":\"test\",\"deleted\":true}"))),
+        @ApiResponse(responseCode = "202", description = "Redis is unavailable, the delete was queued for replay"),
         @ApiResponse(responseCode = "404", description = "Key not found in cache"),
-        @ApiResponse(responseCode = "500", description = "Internal server error occurred")
+        @ApiResponse(responseCode = "500", description = "Internal server error occurred"),
+        @ApiResponse(responseCode = "503", description = "Redis is unavailable and the write queue is full")
     })
     public ResponseEntity<Map<String, Object>> deleteValue(
         @Parameter(description = "The cache key to delete", example = "user:123")
@@ -210,7 +377,8 @@ public class CacheController {
         logger.info("DELETE request for key: {}", key);
         
         try {
-            boolean deleted = cacheService.deleteValue(key);
+            boolean deleted = degradedModeService.write(() -> cacheService.deleteValue(key));
+            degradedModeService.forget(CacheService.CACHE_NAME, key);
             Map<String, Object> response = new HashMap<>();
             response.put("key", key);
             response.put("deleted", deleted);
@@ -220,6 +388,9 @@ public class CacheController {
             } else {
                 return ResponseEntity.notFound().build();
             }
+        } catch (RedisUnavailableException e) {
+            degradedModeService.forget(CacheService.CACHE_NAME, key);
+            return queued(key, "DELETE " + key, () -> cacheService.deleteValue(key));
         } catch (Exception e) {
             logger.error("Error deleting value for key: {}", key, e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -227,6 +398,37 @@ public class CacheController {
         }
     }
 
+    @DeleteMapping("/tags/{tag}")
+    @Operation(
+        summary = "Invalidate cache items by tag",
+        description = "Removes every cache item that was stored with the given tag. Only the tagged keys are touched; they are unlinked in pipelined batches."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Tagged cache items removed successfully",
+            content = @Content(mediaType = "application/json",
+                examples = @ExampleObject(value = "{\"tag\":\"tenant:acme\",\"deleted\":1250}"))),
+        @ApiResponse(responseCode = "500", description = "Internal server error occurred")
+    })
+    public ResponseEntity<Map<String, Object>> invalidateTag(
+        @Parameter(description = "The tag to invalidate", example = "tenant:acme")
+        @PathVariable String tag) {
+        logger.info("DELETE request for tag: {}", tag);
+
+        try {
+            long deleted = cacheService.invalidateTag(tag,
+                    keys -> degradedModeService.forget(CacheService.CACHE_NAME, keys));
+            Map<String, Object> response = new HashMap<>();
+            response.put("tag", tag);
+            response.put("deleted", deleted);
+
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            logger.error("Error invalidating tag: {}", tag, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Failed to invalidate tag", "tag", tag));
+        }
+    }
+
     @GetMapping
     @Operation(
         summary = "Get all cache keys",
@@ -268,6 +470,7 @@ public class CacheController {
     })
     public ResponseEntity<Map<String, Object>> clearAll() {
         logger.info("DELETE request to clear all cache");
+        degradedModeService.forgetAll(CacheService.CACHE_NAME);
         
         try {
             cacheService.clearAllCache();
@@ -313,4 +516,56 @@ public class CacheController {
                     .body(Map.of("error", "Failed to get expiration", "key", key));
         }
     }
-}
\ No newline at end of file
+
+    private ResponseEntity<Map<String, Object>> queued(String key, String description, Runnable write) {
+        if (!degradedModeService.enqueue(description, write)) {
+            return unavailable(key);
+        }
+        Map<String, Object> response = new HashMap<>();
+        response.put("key", key);
+        response.put("queued", true);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+    }
+
+    private ResponseEntity<Map<String, Object>> unavailable(String key) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body(Map.of("error", "Redis is unavailable", "key", key));
+    }
+
+    private static boolean validTags(Set<String> tags) {
+        return tags == null || tags.stream().allMatch(TagIndexService::isValidTag);
+    }
+
+    private static String etag(Long version) {
+        return "\"" + version + "\"";
+    }
+
+    private static boolean etagMatches(String header, long version) {
+        for (String candidate : header.split(",")) {
+            String tag = candidate.trim();
+            if ("*".equals(tag)) {
+                return true;
+            }
+            Long parsed = parseEtag(tag);
+            if (parsed != null && parsed == version) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Long parseEtag(String tag) {
+        String value = tag.trim();
+        if (value.startsWith("W/")) {
+            value = value.substring(2);
+        }
+        if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+            value = value.substring(1, value.length() - 1);
+        }
+        try {
+            return Long.valueOf(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
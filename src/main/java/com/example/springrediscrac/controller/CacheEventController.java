@@ -0,0 +1,68 @@
+package com.example.springrediscrac.controller;
+
+import com.example.springrediscrac.service.CacheEventService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.ExampleObject;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+@RestController
+@RequestMapping("/api/events")
+@Tag(name = "Cache Events", description = "Server-Sent Events stream of cache mutations backed by a Redis Stream")
+public class CacheEventController {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheEventController.class);
+    // Stream ids as accepted by XREAD: milliseconds with an optional sequence number
+    private static final Pattern STREAM_ID = Pattern.compile("\\d+(-\\d+)?");
+
+    @Autowired
+    private CacheEventService cacheEventService;
+
+    @GetMapping(value = "/cache", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(
+        summary = "Subscribe to cache changes",
+        description = "Streams cache mutations (SET, UPDATE, SET_TTL, DELETE, CLEAR) as Server-Sent Events. Reconnecting clients resume after the Last-Event-ID header or the 'from' parameter. When a consumer group is given, events are shared between the consumers of that group and acknowledged once delivered; events left unacknowledged by a disconnected consumer are claimed by another one after app.cache.events.claim-min-idle."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Event stream opened",
+            content = @Content(mediaType = "text/event-stream",
+                examples = @ExampleObject(value = "id:1718000000000-0\nevent:change\ndata:{\"id\":\"1718000000000-0\",\"op\":\"SET\",\"key\":\"user:123\",\"ts\":\"1718000000000\"}"))),
+        @ApiResponse(responseCode = "400", description = "Last-Event-ID or 'from' is not a stream id")
+    })
+    public SseEmitter subscribe(
+        @Parameter(description = "Stream id to resume after, takes precedence over 'from'")
+        @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+        @Parameter(description = "Stream id to start after; only new events are sent when omitted", example = "0-0")
+        @RequestParam(required = false) String from,
+        @Parameter(description = "Consumer group for fan-out between several consumers", example = "search-indexer")
+        @RequestParam(required = false) String group,
+        @Parameter(description = "Consumer name within the group; a random one is used when omitted", example = "indexer-1")
+        @RequestParam(required = false) String consumer) {
+        logger.info("Cache event subscription requested (group: {}, consumer: {})", group, consumer);
+
+        String offset = lastEventId != null ? lastEventId : from;
+        if (offset != null && !STREAM_ID.matcher(offset).matches()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Not a stream id: " + offset);
+        }
+        String consumerName = group != null && consumer == null ? UUID.randomUUID().toString() : consumer;
+        return cacheEventService.subscribe(offset, group, consumerName);
+    }
+}
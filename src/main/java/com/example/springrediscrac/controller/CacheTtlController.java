@@ -0,0 +1,249 @@
+package com.example.springrediscrac.controller;
+
+import com.example.springrediscrac.service.CacheTtlService;
+import com.example.springrediscrac.service.CacheTtlService.BulkJob;
+import com.example.springrediscrac.service.CacheTtlService.Selection;
+import com.example.springrediscrac.service.RedisCircuitBreaker;
+import com.example.springrediscrac.service.RedisCircuitBreaker.RedisUnavailableException;
+import com.example.springrediscrac.service.TagIndexService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.ExampleObject;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+
+@RestController
+@RequestMapping("/api/cache/ttl")
+@Tag(name = "Cache TTL Management", description = "Bulk TTL updates and TTL inspection of cache entries")
+public class CacheTtlController {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheTtlController.class);
+
+    @Autowired
+    private CacheTtlService cacheTtlService;
+
+    @Autowired
+    private RedisCircuitBreaker redisCircuitBreaker;
+
+    @Value("${app.cache.ttl.max-keys:1000}")
+    private int maxKeys;
+
+    @PostMapping("/bulk")
+    @Operation(
+        summary = "Set or remove the TTL of many entries",
+        description = "Selects entries by key pattern (glob-style, e.g. session:*) or by tag and sets their TTL, or removes it with persist=true, without rewriting the values. Each entry gets its own random jitter of up to the given fraction of the TTL (default app.cache.ttl.jitter), so they do not all expire at once. Since a selection can cover any number of keys, the update runs as a background job: the response returns its id right away, and GET /api/cache/ttl/bulk/jobs/{id} reports its progress. Jobs run one at a time, scanning and updating keys in pipelined batches. Bucketed entries can only be changed on Redis 7.4 and later and are counted as skipped otherwise."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "202", description = "Update job queued",
+            content = @Content(mediaType = "application/json",
+                examples = @ExampleObject(value = "{\"id\":\"6f1c2b9e-3f4a-4d7e-9a51-0c8e2d4b7a10\",\"state\":\"QUEUED\",\"pattern\":\"session:*\",\"ttl_ms\":3600000,\"jitter\":0.1,\"scanned\":0,\"updated\":0,\"skipped\":0,\"created_at\":\"2024-01-01T12:00:00Z\"}"))),
+        @ApiResponse(responseCode = "400", description = "Not exactly one of pattern and tag, not exactly one of ttl and persist, or an invalid jitter"),
+        @ApiResponse(responseCode = "429", description = "Too many update jobs are queued"),
+        @ApiResponse(responseCode = "500", description = "Internal server error occurred"),
+        @ApiResponse(responseCode = "503", description = "Redis is unavailable")
+    })
+    public ResponseEntity<Map<String, Object>> updateTtl(
+            @Parameter(description = "Glob-style key pattern", example = "session:*")
+            @RequestParam(required = false) String pattern,
+            @Parameter(description = "Tag of the entries", example = "tenant:acme")
+            @RequestParam(required = false) String tag,
+            @Parameter(description = "New TTL in milliseconds", example = "3600000")
+            @RequestParam(required = false) Long ttl,
+            @Parameter(description = "Remove the TTL instead", example = "false")
+            @RequestParam(defaultValue = "false") boolean persist,
+            @Parameter(description = "Largest fraction of the TTL removed at random, from 0 (inclusive) to 1 (exclusive)", example = "0.1")
+            @RequestParam(required = false) Double jitter) {
+
+        logger.info("POST request to update TTLs of pattern: {} tag: {} to ttl: {} persist: {}", pattern, tag, ttl, persist);
+
+        Selection selection = selection(pattern, tag);
+        if (selection == null) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "Exactly one of pattern and a valid tag is required"));
+        }
+        if (persist == (ttl != null) || (ttl != null && ttl <= 0)) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "Either a positive ttl or persist=true is required"));
+        }
+        double appliedJitter = jitter != null ? jitter : cacheTtlService.getJitter();
+        if (!(appliedJitter >= 0 && appliedJitter < 1)) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "Jitter must be at least 0 and less than 1"));
+        }
+
+        if (redisCircuitBreaker.state() == RedisCircuitBreaker.State.OPEN) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(Map.of("error", "Redis is unavailable"));
+        }
+
+        try {
+            BulkJob job = cacheTtlService.startUpdate(selection, persist ? null : ttl, appliedJitter);
+            logger.info("Queued bulk TTL job {}", job.getId());
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .header(HttpHeaders.LOCATION, "/api/cache/ttl/bulk/jobs/" + job.getId())
+                    .body(jobResponse(job));
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .body(Map.of("error", "Too many TTL update jobs are queued"));
+        } catch (Exception e) {
+            logger.error("Error updating TTLs of pattern: {} tag: {}", pattern, tag, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Failed to update TTLs"));
+        }
+    }
+
+    @GetMapping("/bulk/jobs/{id}")
+    @Operation(
+        summary = "Get the progress of a bulk TTL update",
+        description = "Returns the state (QUEUED, RUNNING, COMPLETED or FAILED) and the counters of an update job: keys scanned so far, entries whose TTL was set or removed, and bucketed entries skipped because Redis cannot expire fields. Finished jobs are kept for app.cache.ttl.job-retention."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Job found",
+            content = @Content(mediaType = "application/json",
+                examples = @ExampleObject(value = "{\"id\":\"6f1c2b9e-3f4a-4d7e-9a51-0c8e2d4b7a10\",\"state\":\"COMPLETED\",\"pattern\":\"session:*\",\"ttl_ms\":3600000,\"jitter\":0.1,\"scanned\":120000,\"updated\":120000,\"skipped\":0,\"created_at\":\"2024-01-01T12:00:00Z\",\"started_at\":\"2024-01-01T12:00:00.010Z\",\"finished_at\":\"2024-01-01T12:00:01.850Z\",\"elapsed_ms\":1840}"))),
+        @ApiResponse(responseCode = "404", description = "No such job, or it finished longer ago than the retention")
+    })
+    public ResponseEntity<Map<String, Object>> getJob(
+            @Parameter(description = "Job id returned by the update", example = "6f1c2b9e-3f4a-4d7e-9a51-0c8e2d4b7a10")
+            @PathVariable String id) {
+        BulkJob job = cacheTtlService.getJob(id);
+        if (job == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("error", "TTL update job not found"));
+        }
+        return ResponseEntity.ok(jobResponse(job));
+    }
+
+    @GetMapping("/bulk")
+    @Operation(
+        summary = "Inspect the TTLs of many entries",
+        description = "With keys, returns the remaining TTL of each key in milliseconds (-1: no expiry, -2: not found), read with one pipelined round trip per batch. With a key pattern or tag, summarizes the TTLs of all selected entries instead: the number of entries without expiry, the range of the remaining TTLs, how many expire in each of the next 60 resolution wide windows (and how many later) and a sample of keys. Summaries scan the whole selection within the request, so they take time in proportion to it (about 15,000 keys per second against a local Redis)."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "TTLs or TTL summary returned",
+            content = @Content(mediaType = "application/json",
+                examples = @ExampleObject(value = "{\"pattern\":\"session:*\",\"entries\":3,\"persistent\":1,\"expiring\":2,\"min_ttl_ms\":3241000,\"max_ttl_ms\":3598000,\"resolution_s\":60,\"expiring_within\":[{\"from_s\":3240,\"count\":1},{\"from_s\":3540,\"count\":1}],\"expiring_later\":0,\"sample\":{\"session:1\":3241000,\"session:2\":3598000,\"session:3\":-1}}"))),
+        @ApiResponse(responseCode = "400", description = "Not exactly one of keys, pattern and tag, too many keys or an invalid resolution"),
+        @ApiResponse(responseCode = "500", description = "Internal server error occurred"),
+        @ApiResponse(responseCode = "503", description = "Redis is unavailable")
+    })
+    public ResponseEntity<Map<String, Object>> getTtls(
+            @Parameter(description = "Keys, comma-separated or repeated", example = "session:1,session:2")
+            @RequestParam(required = false) List<String> keys,
+            @Parameter(description = "Glob-style key pattern", example = "session:*")
+            @RequestParam(required = false) String pattern,
+            @Parameter(description = "Tag of the entries", example = "tenant:acme")
+            @RequestParam(required = false) String tag,
+            @Parameter(description = "Width of the expiry windows of the summary in seconds", example = "60")
+            @RequestParam(defaultValue = "60") long resolution,
+            @Parameter(description = "Number of keys listed in the summary", example = "20")
+            @RequestParam(defaultValue = "20") int sample) {
+
+        try {
+            if (keys != null) {
+                if (pattern != null || tag != null) {
+                    return ResponseEntity.badRequest()
+                            .body(Map.of("error", "Keys cannot be combined with pattern or tag"));
+                }
+                List<String> distinctKeys = new ArrayList<>(new LinkedHashSet<>(keys));
+                distinctKeys.removeIf(String::isBlank);
+                if (distinctKeys.isEmpty() || distinctKeys.size() > maxKeys) {
+                    return ResponseEntity.badRequest()
+                            .body(Map.of("error", "Between 1 and " + maxKeys + " keys are required"));
+                }
+                Map<String, Long> ttls = redisCircuitBreaker.call(() -> cacheTtlService.getTtls(distinctKeys));
+                Map<String, Object> response = new HashMap<>();
+                response.put("ttls", ttls);
+                response.put("count", ttls.size());
+                return ResponseEntity.ok(response);
+            }
+
+            Selection selection = selection(pattern, tag);
+            if (selection == null) {
+                return ResponseEntity.badRequest()
+                        .body(Map.of("error", "Exactly one of keys, pattern and a valid tag is required"));
+            }
+            if (resolution <= 0 || sample < 0) {
+                return ResponseEntity.badRequest()
+                        .body(Map.of("error", "Resolution must be positive and sample not negative"));
+            }
+            Map<String, Object> summary = redisCircuitBreaker.callUntimed(() -> cacheTtlService.summarize(
+                    selection, Duration.ofSeconds(resolution), CacheTtlService.SUMMARY_WINDOWS, sample));
+            Map<String, Object> response = selectionResponse(selection);
+            response.putAll(summary);
+            return ResponseEntity.ok(response);
+        } catch (RedisUnavailableException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(Map.of("error", "Redis is unavailable"));
+        } catch (Exception e) {
+            logger.error("Error reading TTLs of keys: {} pattern: {} tag: {}", keys, pattern, tag, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Failed to read TTLs"));
+        }
+    }
+
+    private static Selection selection(String pattern, String tag) {
+        if (pattern != null && tag == null && !pattern.isBlank()) {
+            return Selection.ofPattern(pattern);
+        }
+        if (tag != null && pattern == null && TagIndexService.isValidTag(tag)) {
+            return Selection.ofTag(tag);
+        }
+        return null;
+    }
+
+    private static Map<String, Object> jobResponse(BulkJob job) {
+        Map<String, Object> response = selectionResponse(job.getSelection());
+        response.put("id", job.getId());
+        response.put("state", job.getState());
+        if (job.getTtlMillis() != null) {
+            response.put("ttl_ms", job.getTtlMillis());
+            response.put("jitter", job.getJitter());
+        } else {
+            response.put("persist", true);
+        }
+        response.put("scanned", job.getScanned());
+        response.put("updated", job.getUpdated());
+        response.put("skipped", job.getSkipped());
+        response.put("created_at", job.getCreatedAt().toString());
+        if (job.getStartedAt() != null) {
+            response.put("started_at", job.getStartedAt().toString());
+        }
+        if (job.getFinishedAt() != null) {
+            response.put("finished_at", job.getFinishedAt().toString());
+            response.put("elapsed_ms", Duration.between(job.getStartedAt(), job.getFinishedAt()).toMillis());
+        }
+        if (job.getError() != null) {
+            response.put("error", job.getError());
+        }
+        return response;
+    }
+
+    private static Map<String, Object> selectionResponse(Selection selection) {
+        Map<String, Object> response = new HashMap<>();
+        if (selection.pattern() != null) {
+            response.put("pattern", selection.pattern());
+        } else {
+            response.put("tag", selection.tag());
+        }
+        return response;
+    }
+}
@@ -1,75 +1,225 @@
 package com.example.springrediscrac.controller;
 
+import com.example.springrediscrac.service.CacheWarmupService;
+import com.example.springrediscrac.service.CatalogBatchService;
 import com.example.springrediscrac.service.CatalogService;
+import com.example.springrediscrac.service.DegradedModeService;
+import com.example.springrediscrac.service.RedisCircuitBreaker;
+import com.example.springrediscrac.service.RedisCircuitBreaker.RedisUnavailableException;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.ExampleObject;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
 @RestController
 @RequestMapping("/api/catalog")
 @Tag(name = "Catalog Cache Operations", description = "Spring Cache annotation based operations for catalog data")
 public class CatalogController {
 
+    private static final Logger logger = LoggerFactory.getLogger(CatalogController.class);
+
+    // Warning header marking values served from the local snapshot (RFC 7234)
+    private static final String STALE_WARNING = "110 - \"Response is Stale\"";
+
     @Autowired
     private CatalogService catalogService;
 
+    @Autowired
+    private CacheWarmupService cacheWarmupService;
+
+    @Autowired
+    private RedisCircuitBreaker redisCircuitBreaker;
+
+    @Autowired
+    private DegradedModeService degradedModeService;
+
+    @Autowired
+    private CatalogBatchService catalogBatchService;
+
+    @Value("${app.catalog.batch.max-ids:100}")
+    private int maxBatchIds;
+
+    @Value("${app.catalog.batch.timeout:2s}")
+    private Duration batchTimeout;
+
+    @GetMapping
+    @Operation(
+        summary = "Get several catalog items at once",
+        description = "Resolves all cached ids with one MGET and loads the misses in parallel, waiting at most the timeout. Loaded items are cached in one pipelined batch. Every id gets a status: HIT, LOADED, STALE (served from the local snapshot while Redis is unavailable), TIMEOUT (still loading, will be cached when done), REJECTED (load pool saturated) or FAILED. Duplicate ids are returned once."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Items resolved, possibly partially; check complete and the per-item status",
+            content = @Content(mediaType = "application/json",
+                examples = @ExampleObject(value = "{\"items\":[{\"id\":\"item1\",\"status\":\"HIT\",\"value\":\"Expensive data for item1 at 1704103200000\"},{\"id\":\"item2\",\"status\":\"TIMEOUT\"}],\"count\":2,\"complete\":false,\"statuses\":{\"HIT\":1,\"TIMEOUT\":1},\"elapsed_ms\":2003}"))),
+        @ApiResponse(responseCode = "400", description = "No ids, too many ids or an invalid timeout"),
+        @ApiResponse(responseCode = "500", description = "Internal server error occurred")
+    })
+    public ResponseEntity<Map<String, Object>> getManyFromCache(
+        @Parameter(description = "Catalog item IDs, comma-separated or repeated", example = "item1,item2,item3") @RequestParam List<String> ids,
+        @Parameter(description = "Maximum time to wait for misses in milliseconds (default app.catalog.batch.timeout)", example = "2000") @RequestParam(required = false) Long timeout) {
+        List<String> distinctIds = new ArrayList<>(new LinkedHashSet<>(ids));
+        distinctIds.removeIf(String::isBlank);
+        if (distinctIds.isEmpty() || distinctIds.size() > maxBatchIds) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "Between 1 and " + maxBatchIds + " distinct ids are required"));
+        }
+        if (timeout != null && timeout < 0) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Timeout must not be negative"));
+        }
+
+        try {
+            long start = System.nanoTime();
+            Map<String, CatalogBatchService.Result> results = catalogBatchService.getAll(distinctIds,
+                    timeout != null ? Duration.ofMillis(Math.min(timeout, batchTimeout.toMillis())) : batchTimeout);
+
+            List<Map<String, Object>> items = new ArrayList<>();
+            Map<CatalogBatchService.Status, Integer> statuses = new EnumMap<>(CatalogBatchService.Status.class);
+            results.forEach((id, result) -> {
+                Map<String, Object> item = new HashMap<>();
+                item.put("id", id);
+                item.put("status", result.getStatus());
+                if (result.getValue() != null) {
+                    item.put("value", result.getValue());
+                }
+                items.add(item);
+                statuses.merge(result.getStatus(), 1, Integer::sum);
+            });
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("items", items);
+            response.put("count", items.size());
+            response.put("statuses", statuses);
+            response.put("complete", items.stream().allMatch(item -> item.containsKey("value")));
+            response.put("elapsed_ms", Duration.ofNanos(System.nanoTime() - start).toMillis());
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            logger.error("Error reading {} catalog ids", distinctIds.size(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Failed to read catalog items"));
+        }
+    }
+
     @GetMapping("/{id}")
     @Operation(
         summary = "Get cached catalog data",
-        description = "Retrieves catalog data using Spring's @Cacheable annotation. First call will be slow (cache miss), subsequent calls will be fast (cache hit)."
+        description = "Retrieves catalog data using Spring's @Cacheable annotation. First call will be slow (cache miss), subsequent calls will be fast (cache hit). While Redis is unavailable, the last value read by this instance is returned with a Warning header, and ids without a local copy are loaded from the backend once."
     )
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Catalog data retrieved successfully"),
         @ApiResponse(responseCode = "500", description = "Internal server error occurred")
     })
-    public String getFromCache(@Parameter(description = "Catalog item ID", example = "item123") @PathVariable String id) {
-        return catalogService.getCachedData(id);
+    public ResponseEntity<String> getFromCache(@Parameter(description = "Catalog item ID", example = "item123") @PathVariable String id) {
+        cacheWarmupService.recordAccess(id);
+        try {
+            // A miss includes the slow backend call, so only failures count for the breaker
+            String data = redisCircuitBreaker.callUntimed(() -> catalogService.getCachedData(id));
+            degradedModeService.remember(CatalogService.CACHE_NAME, id, data, null);
+            return ResponseEntity.ok(data);
+        } catch (RedisUnavailableException e) {
+            DegradedModeService.Snapshot snapshot = degradedModeService.lookup(CatalogService.CACHE_NAME, id);
+            if (snapshot != null) {
+                return ResponseEntity.ok().header(HttpHeaders.WARNING, STALE_WARNING).body((String) snapshot.getValue());
+            }
+            logger.warn("Loading catalog id: {} without cache: {}", id, e.getMessage());
+            String data = catalogService.loadData(id);
+            degradedModeService.remember(CatalogService.CACHE_NAME, id, data, null);
+            return ResponseEntity.ok(data);
+        }
     }
 
     @PostMapping("/{id}")
     @Operation(
         summary = "Update cached catalog data",
-        description = "Updates catalog data using Spring's @CachePut annotation. This will update both the cache and return the data."
+        description = "Updates catalog data using Spring's @CachePut annotation. This will update both the cache and return the data. While Redis is unavailable the update is queued for replay."
     )
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Cache updated successfully"),
-        @ApiResponse(responseCode = "500", description = "Internal server error occurred")
+        @ApiResponse(responseCode = "202", description = "Redis is unavailable, the update was queued for replay"),
+        @ApiResponse(responseCode = "500", description = "Internal server error occurred"),
+        @ApiResponse(responseCode = "503", description = "Redis is unavailable and the write queue is full")
     })
-    public String putToCache(
+    public ResponseEntity<String> putToCache(
         @Parameter(description = "Catalog item ID", example = "item123") @PathVariable String id, 
         @Parameter(description = "Data to cache") @RequestBody String data) {
-        return catalogService.updateCache(id, data);
+        degradedModeService.remember(CatalogService.CACHE_NAME, id, data, null);
+        try {
+            return ResponseEntity.ok(degradedModeService.write(() -> catalogService.updateCache(id, data)));
+        } catch (RedisUnavailableException e) {
+            return queued("UPDATE catalog " + id, () -> catalogService.updateCache(id, data), data);
+        }
     }
 
     @DeleteMapping("/{id}")
     @Operation(
         summary = "Evict cached catalog data",
-        description = "Removes specific catalog data from cache using Spring's @CacheEvict annotation."
+        description = "Removes specific catalog data from cache using Spring's @CacheEvict annotation. While Redis is unavailable the eviction is queued for replay."
     )
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Cache evicted successfully"),
-        @ApiResponse(responseCode = "500", description = "Internal server error occurred")
+        @ApiResponse(responseCode = "202", description = "Redis is unavailable, the eviction was queued for replay"),
+        @ApiResponse(responseCode = "500", description = "Internal server error occurred"),
+        @ApiResponse(responseCode = "503", description = "Redis is unavailable and the write queue is full")
     })
-    public String evictFromCache(@Parameter(description = "Catalog item ID", example = "item123") @PathVariable String id) {
-        catalogService.evictCache(id);
-        return "Cache evicted for id: " + id;
+    public ResponseEntity<String> evictFromCache(@Parameter(description = "Catalog item ID", example = "item123") @PathVariable String id) {
+        degradedModeService.forget(CatalogService.CACHE_NAME, id);
+        try {
+            degradedModeService.write(() -> {
+                catalogService.evictCache(id);
+                return null;
+            });
+            return ResponseEntity.ok("Cache evicted for id: " + id);
+        } catch (RedisUnavailableException e) {
+            return queued("EVICT catalog " + id, () -> catalogService.evictCache(id), "Cache eviction queued for id: " + id);
+        }
     }
 
     @DeleteMapping("/all")
     @Operation(
         summary = "Evict all cached catalog data",
-        description = "Removes all catalog data from cache using Spring's @CacheEvict(allEntries=true) annotation."
+        description = "Removes all catalog data from cache using Spring's @CacheEvict(allEntries=true) annotation. While Redis is unavailable the eviction is queued for replay."
     )
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "All cache entries evicted successfully"),
-        @ApiResponse(responseCode = "500", description = "Internal server error occurred")
+        @ApiResponse(responseCode = "202", description = "Redis is unavailable, the eviction was queued for replay"),
+        @ApiResponse(responseCode = "500", description = "Internal server error occurred"),
+        @ApiResponse(responseCode = "503", description = "Redis is unavailable and the write queue is full")
     })
-    public String evictAllCache() {
-        catalogService.evictAllCache();
-        return "All cache entries evicted";
+    public ResponseEntity<String> evictAllCache() {
+        degradedModeService.forgetAll(CatalogService.CACHE_NAME);
+        try {
+            degradedModeService.write(() -> {
+                catalogService.evictAllCache();
+                return null;
+            });
+            return ResponseEntity.ok("All cache entries evicted");
+        } catch (RedisUnavailableException e) {
+            return queued("EVICT catalog *", catalogService::evictAllCache, "Eviction of all cache entries queued");
+        }
+    }
+
+    private ResponseEntity<String> queued(String description, Runnable write, String body) {
+        if (!degradedModeService.enqueue(description, write)) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Redis is unavailable");
+        }
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(body);
     }
 }
\ No newline at end of file
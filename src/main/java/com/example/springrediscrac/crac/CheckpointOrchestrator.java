@@ -0,0 +1,303 @@
+package com.example.springrediscrac.crac;
+
+import com.example.springrediscrac.service.RedisCircuitBreaker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.crac.Context;
+import org.crac.Core;
+import org.crac.Resource;
+import org.crac.management.CRaCMXBean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Takes the application through a checkpoint and back into service after restore.
+ * <p>
+ * Before the checkpoint, readiness is switched to {@code REFUSING_TRAFFIC} (reported as
+ * {@code OUT_OF_SERVICE}), in-flight requests are drained until {@code app.crac.drain-timeout}
+ * and the hot key snapshot is persisted; the remaining resources, including Spring's lifecycle
+ * beans, are then notified by CRaC itself. After restore, Redis is re-validated and the cache
+ * warmed up in the background before readiness goes back to {@code ACCEPTING_TRAFFIC}. If Redis
+ * is still unreachable after {@code app.crac.redis-restore-attempts} attempts, traffic is
+ * accepted anyway with the circuit breaker open, so requests are served in degraded mode until
+ * its probes find Redis again.
+ * <p>
+ * The same steps run for checkpoints requested through {@code jcmd}. Phase durations are
+ * recorded in the {@code crac.phase.duration} timer, tagged with {@code phase}.
+ */
+@Component
+@Lazy(false)
+public class CheckpointOrchestrator implements Resource, SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(CheckpointOrchestrator.class);
+    private static final String PHASE_METRIC = "crac.phase.duration";
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private InFlightRequestFilter inFlightRequestFilter;
+
+    @Autowired
+    private RedisCracResource redisCracResource;
+
+    @Autowired
+    private RedisCircuitBreaker redisCircuitBreaker;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.crac.readiness-delay:0s}")
+    private Duration readinessDelay;
+
+    @Value("${app.crac.drain-timeout:30s}")
+    private Duration drainTimeout;
+
+    @Value("${app.crac.redis-validation-timeout:10s}")
+    private Duration redisValidationTimeout;
+
+    @Value("${app.crac.redis-restore-attempts:5}")
+    private int redisRestoreAttempts;
+
+    // Doubled after every failed attempt, up to app.crac.redis-restore-max-backoff
+    @Value("${app.crac.redis-restore-backoff:1s}")
+    private Duration redisRestoreBackoff;
+
+    @Value("${app.crac.redis-restore-max-backoff:30s}")
+    private Duration redisRestoreMaxBackoff;
+
+    private final AtomicBoolean inProgress = new AtomicBoolean();
+    private final Map<String, Object> lastRun = new ConcurrentHashMap<>();
+
+    // Registered before Spring's lifecycle resource, so it is notified last before the image
+    // is written and first after restore
+    private final Resource imageMarker = new ImageMarker();
+
+    private volatile boolean registered;
+    private volatile boolean running;
+    private volatile long checkpointStartedNanos;
+    private volatile long restoreStartedAt;
+
+    @PostConstruct
+    public void init() {
+        Core.getGlobalContext().register(imageMarker);
+    }
+
+    public static boolean isSupported() {
+        for (String core : new String[] {"jdk.crac.Core", "javax.crac.Core"}) {
+            try {
+                Class.forName(core);
+                return true;
+            } catch (ClassNotFoundException e) {
+                // try the next one
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Starts a checkpoint on a background thread and returns the initial status. The HTTP
+     * request that triggered it is therefore not part of the drain.
+     */
+    public Map<String, Object> checkpoint() {
+        if (!isSupported()) {
+            throw new UnsupportedOperationException("CRaC checkpoint not supported in current environment");
+        }
+        if (!inProgress.compareAndSet(false, true)) {
+            throw new IllegalStateException("A checkpoint is already in progress");
+        }
+        begin("api");
+
+        Thread thread = new Thread(this::runCheckpoint, "crac-checkpoint");
+        thread.setDaemon(true);
+        thread.start();
+        return status();
+    }
+
+    private void runCheckpoint() {
+        try {
+            Core.checkpointRestore();
+        } catch (Exception e) {
+            logger.error("Checkpoint failed", e);
+            lastRun.put("error", e.getClass().getSimpleName() + ": " + e.getMessage());
+            if ("REQUESTED".equals(lastRun.get("phase"))) {
+                // Resources were never notified, so nothing has to be undone
+                lastRun.put("phase", "FAILED");
+                inProgress.set(false);
+            }
+        }
+    }
+
+    public Map<String, Object> status() {
+        Map<String, Object> status = new TreeMap<>(lastRun);
+        status.put("in_progress", inProgress.get());
+        status.put("in_flight", inFlightRequestFilter.inFlight());
+        return status;
+    }
+
+    private void begin(String trigger) {
+        lastRun.clear();
+        lastRun.put("trigger", trigger);
+        lastRun.put("phase", "REQUESTED");
+        lastRun.put("requested_at", Instant.now().toString());
+    }
+
+    @Override
+    public void beforeCheckpoint(Context<? extends Resource> context) {
+        if (inProgress.compareAndSet(false, true)) {
+            begin("external");
+        }
+        lastRun.put("phase", "DRAINING");
+        restoreStartedAt = 0;
+        AvailabilityChangeEvent.publish(eventPublisher, this, ReadinessState.REFUSING_TRAFFIC);
+        sleep(readinessDelay.toMillis());
+
+        long drainStart = System.nanoTime();
+        int remaining = drain();
+        record("drain", System.nanoTime() - drainStart);
+        if (remaining > 0) {
+            logger.warn("Drain deadline of {} reached with {} requests in flight", drainTimeout, remaining);
+            lastRun.put("undrained_requests", remaining);
+        }
+
+        lastRun.put("phase", "CHECKPOINTING");
+        checkpointStartedNanos = System.nanoTime();
+        redisCracResource.prepareForCheckpoint();
+    }
+
+    private int drain() {
+        long deadline = System.nanoTime() + drainTimeout.toNanos();
+        int inFlight = inFlightRequestFilter.inFlight();
+        while (inFlight > 0 && System.nanoTime() < deadline) {
+            sleep(20);
+            inFlight = inFlightRequestFilter.inFlight();
+        }
+        return inFlight;
+    }
+
+    @Override
+    public void afterRestore(Context<? extends Resource> context) {
+        lastRun.put("phase", "RESTORING");
+        if (restoreStartedAt == 0) {
+            restoreStartedAt = System.currentTimeMillis();
+        }
+        // Let CRaC and Spring finish restoring while readiness stays OUT_OF_SERVICE
+        Thread thread = new Thread(this::completeRestore, "crac-restore");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void completeRestore() {
+        boolean restored = restoreRedis();
+        record("restore", TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis() - restoreStartedAt));
+        if (restored) {
+            lastRun.put("phase", "COMPLETED");
+        } else {
+            lastRun.put("phase", "COMPLETED_DEGRADED");
+            redisCircuitBreaker.open("Redis not reachable after restore");
+        }
+        inFlightRequestFilter.onNextRequestCompleted(() -> record("first_request",
+                TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis() - restoreStartedAt)));
+
+        inProgress.set(false);
+        AvailabilityChangeEvent.publish(eventPublisher, this, ReadinessState.ACCEPTING_TRAFFIC);
+        logger.info("Restore completed, accepting traffic: {}", status());
+    }
+
+    private boolean restoreRedis() {
+        long backoff = redisRestoreBackoff.toMillis();
+        for (int attempt = 1; ; attempt++) {
+            lastRun.put("redis_attempts", attempt);
+            if (redisCracResource.restore(redisValidationTimeout)) {
+                return true;
+            }
+            if (attempt >= redisRestoreAttempts || Thread.currentThread().isInterrupted()) {
+                logger.error("Redis not reachable after {} restore attempts, accepting traffic in degraded mode",
+                        attempt);
+                return false;
+            }
+            lastRun.put("phase", "WAITING_FOR_REDIS");
+            logger.warn("Redis restore attempt {} of {} failed, retrying in {} ms",
+                    attempt, redisRestoreAttempts, backoff);
+            sleep(backoff);
+            backoff = Math.min(backoff * 2, redisRestoreMaxBackoff.toMillis());
+        }
+    }
+
+    private void record(String phase, long nanos) {
+        Timer.builder(PHASE_METRIC)
+                .description("Duration of the CRaC checkpoint and restore phases")
+                .tag("phase", phase)
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+        lastRun.put(phase + "_ms", TimeUnit.NANOSECONDS.toMillis(nanos));
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void start() {
+        if (!registered) {
+            // After Spring's lifecycle processor has registered its own resource, so that
+            // draining happens before the web server is stopped and the restore steps run
+            // once it is started again
+            Core.getGlobalContext().register(this);
+            registered = true;
+        }
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private class ImageMarker implements Resource {
+
+        @Override
+        public void beforeCheckpoint(Context<? extends Resource> context) {
+            if (checkpointStartedNanos > 0) {
+                record("checkpoint", System.nanoTime() - checkpointStartedNanos);
+                checkpointStartedNanos = 0;
+            }
+        }
+
+        @Override
+        public void afterRestore(Context<? extends Resource> context) {
+            long restoreTime = CRaCMXBean.getCRaCMXBean().getRestoreTime();
+            restoreStartedAt = restoreTime > 0 ? restoreTime : System.currentTimeMillis();
+            lastRun.put("restored_at", Instant.ofEpochMilli(restoreStartedAt).toString());
+        }
+    }
+}
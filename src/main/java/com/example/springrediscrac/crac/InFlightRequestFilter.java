@@ -0,0 +1,53 @@
+package com.example.springrediscrac.crac;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Counts requests currently being processed so that a checkpoint can wait for them to finish,
+ * and reports the completion of the next application request, which is used to time the first
+ * request served after a restore. Actuator requests (e.g. probes) are counted but never
+ * reported as the next request.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class InFlightRequestFilter extends OncePerRequestFilter {
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicReference<Runnable> nextRequestCallback = new AtomicReference<>();
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        inFlight.incrementAndGet();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            inFlight.decrementAndGet();
+            if (!request.getRequestURI().startsWith("/actuator")) {
+                Runnable callback = nextRequestCallback.getAndSet(null);
+                if (callback != null) {
+                    callback.run();
+                }
+            }
+        }
+    }
+
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    public void onNextRequestCompleted(Runnable callback) {
+        nextRequestCallback.set(callback);
+    }
+}
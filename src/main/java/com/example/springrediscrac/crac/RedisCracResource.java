@@ -1,29 +1,128 @@
 package com.example.springrediscrac.crac;
 
+import com.example.springrediscrac.service.CacheWarmupService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.CacheManager;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.redis.connection.RedisConnection;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.stereotype.Component;
 
 import jakarta.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.Map;
 
+/**
+ * Connects to Redis in the background once the connection factory has started, so the
+ * handshake overlaps with the rest of startup instead of blocking bean creation. As a
+ * lifecycle bean it is stopped before a checkpoint and started again after restore.
+ * <p>
+ * The checkpoint and restore hooks are invoked by {@link CheckpointOrchestrator}.
+ */
 @Component
-public class RedisCracResource {
+@Lazy(false)
+public class RedisCracResource implements SmartLifecycle {
 
     private static final Logger logger = LoggerFactory.getLogger(RedisCracResource.class);
 
+    // Start right after the Lettuce connection factory (phase 0) and well before the web server
+    private static final int PHASE = 1;
+
     @Autowired
-    private CacheManager cacheManager;
+    private ObjectProvider<CacheManager> cacheManager;
 
     @Autowired
     private RedisConnectionFactory redisConnectionFactory;
 
+    @Autowired
+    private CacheWarmupService cacheWarmupService;
+
+    private volatile boolean running;
+
     @PostConstruct
     public void init() {
         logger.info("RedisCracResource initialized - Using Lettuce Redis client with Spring Boot CRaC support");
-        logger.info("Cache manager: {}", cacheManager.getClass().getSimpleName());
         logger.info("Connection factory: {}", redisConnectionFactory.getClass().getSimpleName());
     }
-}
\ No newline at end of file
+
+    @Override
+    public void start() {
+        running = true;
+        Thread connector = new Thread(this::connect, "redis-connect");
+        connector.setDaemon(true);
+        connector.start();
+    }
+
+    private void connect() {
+        long start = System.nanoTime();
+        try (RedisConnection connection = redisConnectionFactory.getConnection()) {
+            connection.ping();
+            logger.info("Redis connection established in background in {} ms",
+                    (System.nanoTime() - start) / 1_000_000);
+            logger.info("Cache manager: {}", cacheManager.getObject().getClass().getSimpleName());
+        } catch (Exception e) {
+            logger.warn("Background Redis connection failed: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    /**
+     * Persists the hot key snapshot so that the image reflects the latest traffic.
+     */
+    public void prepareForCheckpoint() {
+        cacheWarmupService.persistHotKeys();
+    }
+
+    /**
+     * Waits until Redis answers a PING again, then warms up the catalog cache. Returns false if
+     * Redis did not become reachable within the timeout, in which case no warm-up is attempted.
+     */
+    public boolean restore(Duration validationTimeout) {
+        if (!awaitConnection(validationTimeout)) {
+            return false;
+        }
+        Map<String, Object> warmup = cacheWarmupService.warmUp("restore");
+        logger.info("Post-restore warm-up: {}", warmup);
+        return true;
+    }
+
+    private boolean awaitConnection(Duration timeout) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (true) {
+            try (RedisConnection connection = redisConnectionFactory.getConnection()) {
+                connection.ping();
+                return true;
+            } catch (Exception e) {
+                if (System.nanoTime() >= deadline) {
+                    logger.error("Redis not reachable after restore within {}: {}", timeout, e.getMessage());
+                    return false;
+                }
+                logger.debug("Redis not reachable yet after restore: {}", e.getMessage());
+            }
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.springrediscrac.logging;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Wraps cache values passed to log statements so that they are never written in full.
+ * <p>
+ * The wrapper is only rendered when the event is actually logged. Depending on
+ * {@code app.logging.values} it shows the value cut to {@code app.logging.max-value-length}
+ * characters ({@code truncate}), only its type and size ({@code redact}), or the whole value
+ * ({@code full}, for local debugging). Maps and collections are always summarized by size.
+ */
+@Component
+public class LogValues {
+
+    @Value("${app.logging.values:truncate}")
+    private String mode;
+
+    @Value("${app.logging.max-value-length:64}")
+    private int maxLength;
+
+    public Object of(Object value) {
+        return new LoggedValue(value);
+    }
+
+    private String render(Object value) {
+        if (value == null) {
+            return "null";
+        }
+        if (value instanceof Map<?, ?> map) {
+            return "{" + map.size() + " entries}";
+        }
+        if (value instanceof Collection<?> collection) {
+            return "[" + collection.size() + " items]";
+        }
+        if (value instanceof Number || value instanceof Boolean) {
+            return value.toString();
+        }
+        String text = value.toString();
+        switch (mode) {
+            case "full":
+                return text;
+            case "redact":
+                return "<" + value.getClass().getSimpleName() + ", " + text.length() + " chars>";
+            default:
+                return text.length() <= maxLength
+                        ? text
+                        : text.substring(0, maxLength) + "...(" + text.length() + " chars)";
+        }
+    }
+
+    private final class LoggedValue {
+
+        private final Object value;
+
+        LoggedValue(Object value) {
+            this.value = value;
+        }
+
+        @Override
+        public String toString() {
+            return render(value);
+        }
+    }
+}
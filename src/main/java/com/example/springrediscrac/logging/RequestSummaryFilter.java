@@ -0,0 +1,63 @@
+package com.example.springrediscrac.logging;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Writes one logfmt summary line per API request, e.g.
+ * <pre>
+ * method=GET path=/api/cache/user:123 status=200 duration_ms=1.84 stale=false
+ * </pre>
+ * Successful requests are logged at INFO and sampled like the other per-request logs; server
+ * errors and requests slower than {@code app.logging.slow-request-threshold} are logged at WARN
+ * and always kept. The query string is left out because it may carry values.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class RequestSummaryFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(RequestSummaryFilter.class);
+    private static final String SUMMARY_FORMAT = "method={} path={} status={} duration_ms={} stale={}";
+
+    @Value("${app.logging.slow-request-threshold:500ms}")
+    private Duration slowRequestThreshold;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return request.getRequestURI().startsWith("/actuator");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        long start = System.nanoTime();
+        int status = HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+        try {
+            filterChain.doFilter(request, response);
+            status = response.getStatus();
+        } finally {
+            long nanos = System.nanoTime() - start;
+            boolean warn = status >= 500 || nanos > slowRequestThreshold.toNanos();
+            // Arguments are only formatted if the sampling filter lets the event through
+            Object[] fields = {request.getMethod(), request.getRequestURI(), status,
+                    Math.round(nanos / 10_000.0) / 100.0, response.getHeader("Warning") != null};
+            if (warn) {
+                logger.warn(SUMMARY_FORMAT, fields);
+            } else {
+                logger.info(SUMMARY_FORMAT, fields);
+            }
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.springrediscrac.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.LoggerFactory;
+import org.slf4j.Marker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rate-limits INFO and lower events of the per-request loggers to a fixed number per second.
+ * <p>
+ * Events beyond the budget of the current second are denied before the message is formatted,
+ * so the logging cost stays constant however many requests are served. Only events the logger
+ * would write count against the budget. WARN and ERROR always pass. The number of dropped
+ * events is reported with the first sampled event of the next second. Configured in
+ * {@code logback-spring.xml}.
+ */
+public class SamplingTurboFilter extends TurboFilter {
+
+    private final List<String> loggers = new ArrayList<>();
+    private int ratePerSecond = 100;
+
+    private final AtomicLong window = new AtomicLong();
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * Adds a logger name; its descendants are sampled as well.
+     */
+    public void addSampledLogger(String logger) {
+        loggers.add(logger.trim());
+    }
+
+    public void setRatePerSecond(int ratePerSecond) {
+        this.ratePerSecond = ratePerSecond;
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        // Level checks (isInfoEnabled) come without a format and must not use up the budget
+        if (format == null || level.isGreaterOrEqual(Level.WARN) || !sampled(logger.getName())) {
+            return FilterReply.NEUTRAL;
+        }
+        // Events the logger discards anyway must not use up the budget either. Compared with
+        // the effective level directly, as isEnabledFor would run the turbo filters again
+        if (!level.isGreaterOrEqual(logger.getEffectiveLevel())) {
+            return FilterReply.NEUTRAL;
+        }
+        long second = System.nanoTime() / 1_000_000_000L;
+        long current = window.get();
+        if (second != current && window.compareAndSet(current, second)) {
+            accepted.set(0);
+            long droppedLastWindow = dropped.getAndSet(0);
+            if (droppedLastWindow > 0) {
+                LoggerFactory.getLogger(SamplingTurboFilter.class)
+                        .info("Sampled out {} request log events (limit {}/s)", droppedLastWindow, ratePerSecond);
+            }
+        }
+        if (accepted.incrementAndGet() <= ratePerSecond) {
+            return FilterReply.NEUTRAL;
+        }
+        dropped.incrementAndGet();
+        return FilterReply.DENY;
+    }
+
+    private boolean sampled(String name) {
+        for (String prefix : loggers) {
+            if (name.startsWith(prefix) && (name.length() == prefix.length() || name.charAt(prefix.length()) == '.')) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
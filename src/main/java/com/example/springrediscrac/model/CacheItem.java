@@ -7,6 +7,7 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.validation.constraints.NotBlank;
 import java.io.Serializable;
 import java.time.LocalDateTime;
+import java.util.Set;
 
 @Schema(description = "Cache item containing key, value, and timestamps")
 public class CacheItem implements Serializable {
@@ -20,6 +21,12 @@ public class CacheItem implements Serializable {
     @Schema(description = "The cached value (can be any JSON-serializable type)", example = "John Doe")
     private Object value;
     
+    @Schema(description = "Tags for group invalidation, e.g. a tenant or product family", example = "[\"tenant:acme\"]")
+    private Set<String> tags;
+    
+    @Schema(description = "Version of the stored entry, also returned as ETag", example = "42", accessMode = Schema.AccessMode.READ_ONLY)
+    private Long version;
+    
     @Schema(description = "Timestamp when the item was created", example = "2024-01-01T10:00:00")
     private LocalDateTime createdAt;
     
@@ -56,6 +63,22 @@ public class CacheItem implements Serializable {
         this.updatedAt = LocalDateTime.now();
     }
 
+    public Set<String> getTags() {
+        return tags;
+    }
+
+    public void setTags(Set<String> tags) {
+        this.tags = tags;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
@@ -77,6 +100,8 @@ public class CacheItem implements Serializable {
         return "CacheItem{" +
                 "key='" + key + '\'' +
                 ", value=" + value +
+                ", tags=" + tags +
+                ", version=" + version +
                 ", createdAt=" + createdAt +
                 ", updatedAt=" + updatedAt +
                 '}';
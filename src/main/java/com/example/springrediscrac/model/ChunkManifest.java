@@ -0,0 +1,88 @@
+package com.example.springrediscrac.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.io.Serializable;
+
+@Schema(description = "Manifest stored in place of a large value that has been compressed and split into chunks")
+public class ChunkManifest implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Schema(description = "Write generation the chunks belong to", example = "5f1c2a9e")
+    private String generation;
+
+    @Schema(description = "Number of chunks", example = "12")
+    private int chunkCount;
+
+    @Schema(description = "Size of the serialized value before compression in bytes", example = "4194304")
+    private long originalSize;
+
+    @Schema(description = "Size of the compressed value in bytes", example = "786432")
+    private long compressedSize;
+
+    @Schema(description = "Compression applied to the chunk payload", example = "gzip")
+    private String encoding;
+
+    public ChunkManifest() {
+    }
+
+    public ChunkManifest(String generation, int chunkCount, long originalSize, long compressedSize, String encoding) {
+        this.generation = generation;
+        this.chunkCount = chunkCount;
+        this.originalSize = originalSize;
+        this.compressedSize = compressedSize;
+        this.encoding = encoding;
+    }
+
+    public String getGeneration() {
+        return generation;
+    }
+
+    public void setGeneration(String generation) {
+        this.generation = generation;
+    }
+
+    public int getChunkCount() {
+        return chunkCount;
+    }
+
+    public void setChunkCount(int chunkCount) {
+        this.chunkCount = chunkCount;
+    }
+
+    public long getOriginalSize() {
+        return originalSize;
+    }
+
+    public void setOriginalSize(long originalSize) {
+        this.originalSize = originalSize;
+    }
+
+    public long getCompressedSize() {
+        return compressedSize;
+    }
+
+    public void setCompressedSize(long compressedSize) {
+        this.compressedSize = compressedSize;
+    }
+
+    public String getEncoding() {
+        return encoding;
+    }
+
+    public void setEncoding(String encoding) {
+        this.encoding = encoding;
+    }
+
+    @Override
+    public String toString() {
+        return "ChunkManifest{" +
+                "generation='" + generation + '\'' +
+                ", chunkCount=" + chunkCount +
+                ", originalSize=" + originalSize +
+                ", compressedSize=" + compressedSize +
+                ", encoding='" + encoding + '\'' +
+                '}';
+    }
+}
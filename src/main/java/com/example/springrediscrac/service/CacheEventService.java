@@ -0,0 +1,375 @@
+package com.example.springrediscrac.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.RedisSystemException;
+import org.springframework.data.redis.connection.Limit;
+import org.springframework.data.redis.connection.RedisStreamCommands.XAddOptions;
+import org.springframework.data.redis.connection.stream.Consumer;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.ReadOffset;
+import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.connection.stream.StreamInfo.XInfoConsumer;
+import org.springframework.data.redis.connection.stream.StreamReadOptions;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Publishes cache mutations to a capped Redis Stream and fans them out to Server-Sent Events
+ * subscribers.
+ * <p>
+ * Subscribers either track their own offset (resumable through {@code Last-Event-ID}) or join
+ * a consumer group, in which case Redis tracks delivery and each batch of events is acknowledged
+ * once it has been written to the client. Subscriptions poll the stream with non-blocking reads
+ * on a shared scheduler, so idle clients do not hold a Redis connection, and hand each batch to
+ * a separate sender pool, so a slow client only delays its own events.
+ * <p>
+ * Polls that fail because Redis is unreachable are retried on the next tick; any other failure
+ * ends the subscription with an error.
+ * <p>
+ * Group consumers leave the group when they disconnect with nothing pending. Events a consumer
+ * received but never acknowledged are claimed by another consumer of the group once they have
+ * been idle for {@code app.cache.events.claim-min-idle}, and consumers idle for that long with
+ * nothing pending are removed.
+ */
+@Service
+public class CacheEventService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheEventService.class);
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> CLAIM_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/claim-events.lua"), List.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Value("${app.cache.events.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.cache.events.stream-key:events:cache}")
+    private String streamKey;
+
+    @Value("${app.cache.events.max-length:10000}")
+    private long maxLength;
+
+    @Value("${app.cache.events.batch-size:100}")
+    private int batchSize;
+
+    @Value("${app.cache.events.poll-interval:250ms}")
+    private Duration pollInterval;
+
+    @Value("${app.cache.events.emitter-timeout:30m}")
+    private Duration emitterTimeout;
+
+    @Value("${app.cache.events.claim-min-idle:60s}")
+    private Duration claimMinIdle;
+
+    @Value("${app.cache.events.claim-interval:5s}")
+    private Duration claimInterval;
+
+    private final ScheduledExecutorService scheduler;
+    private final ThreadPoolExecutor sender;
+
+    public CacheEventService(@Value("${app.cache.events.poller-threads:2}") int pollerThreads,
+                             @Value("${app.cache.events.sender-threads:64}") int senderThreads) {
+        AtomicInteger threadCount = new AtomicInteger();
+        this.scheduler = Executors.newScheduledThreadPool(pollerThreads, runnable -> {
+            Thread thread = new Thread(runnable, "cache-events-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        // No queue: when all senders are busy the batch is read again on the next poll
+        AtomicInteger senderCount = new AtomicInteger();
+        this.sender = new ThreadPoolExecutor(0, senderThreads, 60, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "cache-events-send-" + senderCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Appends a mutation event. Failures are logged and swallowed, the mutation itself has
+     * already been applied.
+     */
+    public void publish(String operation, String key) {
+        if (!enabled) {
+            return;
+        }
+        Map<String, String> event = new LinkedHashMap<>();
+        event.put("op", operation);
+        event.put("key", key);
+        event.put("ts", Long.toString(System.currentTimeMillis()));
+        try {
+            stringRedisTemplate.opsForStream().add(streamKey, event,
+                    XAddOptions.maxlen(maxLength).approximateTrimming(true));
+        } catch (DataAccessException e) {
+            logger.warn("Could not publish {} event for key: {}: {}", operation, key, e.getMessage());
+        }
+    }
+
+    /**
+     * Opens an SSE subscription. Without a group, events after {@code lastEventId} are sent, or
+     * only new events if it is null. With a group, unacknowledged events of the consumer are
+     * redelivered first, then events abandoned by other consumers are claimed along with new
+     * ones, and every sent batch is acknowledged.
+     */
+    public SseEmitter subscribe(String lastEventId, String group, String consumer) {
+        SseEmitter emitter = new SseEmitter(emitterTimeout.toMillis());
+        Subscription subscription = group != null
+                ? new Subscription(emitter, null, Consumer.from(group, consumer))
+                : new Subscription(emitter, lastEventId != null ? lastEventId : latestId(), null);
+        if (group != null) {
+            ensureGroup(group);
+        }
+
+        subscription.future = scheduler.scheduleWithFixedDelay(subscription::poll,
+                0, pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+        emitter.onCompletion(subscription::cancel);
+        emitter.onTimeout(subscription::cancel);
+        emitter.onError(e -> subscription.cancel());
+        logger.debug("Opened cache event subscription (group: {}, consumer: {}, from: {})",
+                group, consumer, subscription.offset);
+        return emitter;
+    }
+
+    private String latestId() {
+        List<MapRecord<String, Object, Object>> last = stringRedisTemplate.opsForStream()
+                .reverseRange(streamKey, Range.unbounded(), Limit.limit().count(1));
+        return last == null || last.isEmpty() ? "0-0" : last.get(0).getId().getValue();
+    }
+
+    private void ensureGroup(String group) {
+        try {
+            // MKSTREAM so that a group can be joined before the first mutation
+            stringRedisTemplate.execute((RedisCallback<String>) connection -> connection.streamCommands()
+                    .xGroupCreate(bytes(streamKey), group, ReadOffset.latest(), true));
+        } catch (RedisSystemException e) {
+            // The driver's error is wrapped, the group already existing is not an error
+            String message = NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+            if (message == null || !message.contains("BUSYGROUP")) {
+                throw e;
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        sender.shutdownNow();
+    }
+
+    private class Subscription {
+
+        private final SseEmitter emitter;
+        private final Consumer consumer;
+        private volatile String offset;
+        private boolean pendingDrained;
+        private String claimCursor = "0-0";
+        private long nextClaim = System.nanoTime();
+        // Set while a batch is written to the client; polls are skipped until it is done
+        private volatile boolean delivering;
+        private volatile boolean cancelled;
+        private volatile ScheduledFuture<?> future;
+
+        Subscription(SseEmitter emitter, String offset, Consumer consumer) {
+            this.emitter = emitter;
+            this.offset = offset;
+            this.consumer = consumer;
+        }
+
+        synchronized void poll() {
+            if (cancelled) {
+                // Cancelled before the future was assigned; throwing stops further executions
+                throw new IllegalStateException("Subscription cancelled");
+            }
+            if (delivering) {
+                return;
+            }
+            try {
+                List<MapRecord<String, Object, Object>> records = read();
+                if (records == null || records.isEmpty()) {
+                    return;
+                }
+                delivering = true;
+                try {
+                    sender.execute(() -> deliver(records));
+                } catch (RejectedExecutionException e) {
+                    delivering = false;
+                    // The batch is now pending for the consumer and is read again from there
+                    pendingDrained = false;
+                }
+            } catch (RedisConnectionFailureException | TransientDataAccessException e) {
+                logger.warn("Cache event subscription poll failed, retrying: {}", e.getMessage());
+            } catch (Exception e) {
+                // Retrying cannot help, e.g. the group was destroyed or the stream id is rejected
+                logger.warn("Closing cache event subscription after poll failure: {}", e.getMessage());
+                cancel();
+                emitter.completeWithError(e);
+            }
+        }
+
+        private List<MapRecord<String, Object, Object>> read() {
+            StreamReadOptions options = StreamReadOptions.empty().count(batchSize);
+            if (consumer == null) {
+                return stringRedisTemplate.opsForStream()
+                        .read(options, StreamOffset.create(streamKey, ReadOffset.from(offset)));
+            }
+            if (!pendingDrained) {
+                List<MapRecord<String, Object, Object>> pending = stringRedisTemplate.opsForStream()
+                        .read(consumer, options, StreamOffset.create(streamKey, ReadOffset.from("0")));
+                if (pending != null && !pending.isEmpty()) {
+                    return pending;
+                }
+                pendingDrained = true;
+            }
+            if (System.nanoTime() >= nextClaim) {
+                List<MapRecord<String, Object, Object>> claimed = claim();
+                if (!claimed.isEmpty()) {
+                    return claimed;
+                }
+            }
+            return stringRedisTemplate.opsForStream()
+                    .read(consumer, options, StreamOffset.create(streamKey, ReadOffset.lastConsumed()));
+        }
+
+        /**
+         * Takes over events that other consumers of the group received but did not acknowledge
+         * within the minimum idle time. Once the whole pending list has been scanned, idle
+         * consumers without pending events are removed and the next scan waits for the claim
+         * interval.
+         */
+        @SuppressWarnings("unchecked")
+        private List<MapRecord<String, Object, Object>> claim() {
+            List<Object> reply = stringRedisTemplate.execute(CLAIM_SCRIPT, List.of(streamKey), consumer.getGroup(),
+                    consumer.getName(), Long.toString(claimMinIdle.toMillis()), claimCursor, Integer.toString(batchSize));
+            List<MapRecord<String, Object, Object>> records = new ArrayList<>();
+            for (Object entry : (List<Object>) reply.get(1)) {
+                List<Object> idAndFields = (List<Object>) entry;
+                List<Object> fields = (List<Object>) idAndFields.get(1);
+                Map<Object, Object> value = new LinkedHashMap<>();
+                for (int i = 0; i + 1 < fields.size(); i += 2) {
+                    value.put(fields.get(i), fields.get(i + 1));
+                }
+                records.add(StreamRecords.newRecord().in(streamKey).withId((String) idAndFields.get(0)).ofMap(value));
+            }
+
+            claimCursor = (String) reply.get(0);
+            if ("0-0".equals(claimCursor)) {
+                nextClaim = System.nanoTime() + claimInterval.toNanos();
+                removeIdleConsumers();
+            }
+            if (!records.isEmpty()) {
+                logger.info("Claimed {} unacknowledged cache events for consumer {} of group {}",
+                        records.size(), consumer.getName(), consumer.getGroup());
+            }
+            return records;
+        }
+
+        private void removeIdleConsumers() {
+            for (XInfoConsumer other : stringRedisTemplate.opsForStream().consumers(streamKey, consumer.getGroup())) {
+                if (other.pendingCount() == 0 && other.idleTimeMs() >= claimMinIdle.toMillis()) {
+                    stringRedisTemplate.opsForStream().deleteConsumer(streamKey,
+                            Consumer.from(consumer.getGroup(), other.consumerName()));
+                }
+            }
+        }
+
+        private void deliver(List<MapRecord<String, Object, Object>> records) {
+            List<String> sent = new ArrayList<>(records.size());
+            try {
+                for (MapRecord<String, Object, Object> record : records) {
+                    String id = record.getId().getValue();
+                    Map<Object, Object> data = new LinkedHashMap<>();
+                    data.put("id", id);
+                    data.putAll(record.getValue());
+                    emitter.send(SseEmitter.event().id(id).name("change").data(data));
+                    offset = id;
+                    sent.add(id);
+                }
+            } catch (IOException | IllegalStateException e) {
+                // Client went away
+                cancel();
+            } catch (Exception e) {
+                logger.warn("Cache event delivery failed: {}", e.getMessage());
+            } finally {
+                try {
+                    if (consumer != null && !sent.isEmpty()) {
+                        stringRedisTemplate.opsForStream().acknowledge(streamKey, consumer.getGroup(), sent.toArray(String[]::new));
+                    }
+                } catch (DataAccessException e) {
+                    logger.warn("Could not acknowledge {} cache events: {}", sent.size(), e.getMessage());
+                }
+                delivering = false;
+                if (cancelled) {
+                    leaveGroup();
+                }
+            }
+        }
+
+        void cancel() {
+            cancelled = true;
+            ScheduledFuture<?> current = future;
+            if (current != null) {
+                current.cancel(false);
+            }
+            if (!delivering) {
+                leaveGroup();
+            }
+        }
+
+        /**
+         * Removes the consumer from its group unless it still has pending events, which are
+         * left for other consumers to claim. Synchronized with polls, so no read can add
+         * pending events between the check and the removal.
+         */
+        private synchronized void leaveGroup() {
+            if (consumer == null) {
+                return;
+            }
+            try {
+                if (stringRedisTemplate.opsForStream().pending(streamKey, consumer, Range.unbounded(), 1L).isEmpty()) {
+                    stringRedisTemplate.opsForStream().deleteConsumer(streamKey, consumer);
+                    logger.debug("Consumer {} left group {}", consumer.getName(), consumer.getGroup());
+                }
+            } catch (DataAccessException e) {
+                logger.debug("Could not remove consumer {} from group {}: {}",
+                        consumer.getName(), consumer.getGroup(), e.getMessage());
+            }
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+}
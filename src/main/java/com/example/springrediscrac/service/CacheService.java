@@ -1,92 +1,537 @@
 package com.example.springrediscrac.service;
 
+import com.example.springrediscrac.logging.LogValues;
 import com.example.springrediscrac.model.CacheItem;
+import com.example.springrediscrac.model.ChunkManifest;
+import com.example.springrediscrac.stats.KeyAccessStatistics;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.stereotype.Service;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 @Service
 public class CacheService {
 
     private static final Logger logger = LoggerFactory.getLogger(CacheService.class);
-    private static final String CACHE_KEY_PREFIX = "cache:";
+    static final String CACHE_KEY_PREFIX = "cache:";
+    static final String META_KEY_PREFIX = "meta:";
+    public static final String CACHE_NAME = "cache";
+
+    // Key prefix RedisCacheManager uses for the "cache" region
+    static final String CACHE_REGION_KEY_PREFIX = CACHE_NAME + "::";
+    private static final String VERSION_SEQUENCE_KEY = "seq:cache";
+    // Keys requested per SCAN and unlinked per UNLINK when the whole cache is cleared
+    private static final int CLEAR_BATCH_SIZE = 500;
+    // How GenericJackson2JsonRedisSerializer starts a serialized manifest, checked before deserializing stored values
+    private static final byte[] CHUNK_MANIFEST_MARKER = bytes("{\"@class\":\"" + ChunkManifest.class.getName() + "\"");
+
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> COMMIT_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/commit-value.lua"), List.class);
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> COMMIT_BUCKET_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/commit-bucket.lua"), List.class);
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> DELETE_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/delete-value.lua"), List.class);
+    // Leaves bulk replies of the scripts as raw bytes so each element can be decoded on its own
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static final RedisSerializer<List> RAW_REPLY = (RedisSerializer) RedisSerializer.byteArray();
 
     @Autowired
     private RedisTemplate<String, Object> redisTemplate;
 
-    @Cacheable(value = "cache", key = "#key")
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private LargeValueStore largeValueStore;
+
+    @Autowired
+    private HashBucketStore hashBucketStore;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private LogValues logValues;
+
+    @Autowired
+    private CacheEventService cacheEventService;
+
+    @Autowired
+    private TagIndexService tagIndexService;
+
+    @Autowired
+    private CacheTtlService cacheTtlService;
+
+    @Autowired
+    private KeyAccessStatistics keyAccessStatistics;
+
+    // Bucketed entries are as cheap to read as the region copy, which would only duplicate them.
+    // Region hits are recorded by StatisticsRedisCacheWriter, everything else here.
+    @Cacheable(value = CACHE_NAME, key = "#key", condition = "!@hashBucketStore.enabled",
+            unless = "#result == null || @largeValueStore.exceedsThreshold(#result)")
     public Object getValue(String key) {
-        logger.info("Retrieving value for key: {}", key);
+        logger.debug("Retrieving value for key: {}", key);
+        HashBucketStore.Entry entry = hashBucketStore.read(key);
+        if (entry != null) {
+            Object value = redisTemplate.getValueSerializer().deserialize(entry.value());
+            logger.debug("Retrieved bucketed value: {} for key: {}", logValues.of(value), key);
+            keyAccessStatistics.recordHit(CACHE_NAME, key);
+            return value;
+        }
         String redisKey = CACHE_KEY_PREFIX + key;
         Object value = redisTemplate.opsForValue().get(redisKey);
-        logger.debug("Retrieved value: {} for key: {}", value, key);
+        if (value instanceof ChunkManifest manifest) {
+            value = readChunked(key, manifest);
+        }
+        logger.debug("Retrieved value: {} for key: {}", logValues.of(value), key);
+        if (value != null) {
+            keyAccessStatistics.recordHit(CACHE_NAME, key);
+        } else {
+            keyAccessStatistics.recordMiss(CACHE_NAME, key);
+        }
         return value;
     }
 
-    @CachePut(value = "cache", key = "#cacheItem.key")
+    /**
+     * Opens the JSON form of a value as a stream, or returns null if the key does not exist.
+     * Chunked values are decompressed chunk by chunk while the stream is consumed.
+     */
+    public InputStream openValueStream(String key) {
+        HashBucketStore.Entry entry = hashBucketStore.read(key);
+        String redisKey = CACHE_KEY_PREFIX + key;
+        Object value = entry != null
+                ? redisTemplate.getValueSerializer().deserialize(entry.value())
+                : redisTemplate.opsForValue().get(redisKey);
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof ChunkManifest manifest) {
+            return largeValueStore.openStream(key, manifest);
+        }
+        try {
+            return new ByteArrayInputStream(objectMapper.writeValueAsBytes(value));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to serialize value for key: " + key, e);
+        }
+    }
+
+    /**
+     * Returns the stored bytes of each value in key order, or null for missing keys, reading all
+     * keys in one pipeline. Values are passed through as Redis holds them (JSON with the type
+     * hints of the serializer), without deserializing; only chunked values are reassembled, into
+     * their plain JSON form.
+     */
+    public List<byte[]> getRawValues(List<String> keys) {
+        boolean buckets = hashBucketStore.isEnabled();
+        List<Object> replies = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String key : keys) {
+                if (buckets) {
+                    connection.hashCommands().hGet(bytes(hashBucketStore.bucketKey(key)), bytes(key));
+                }
+                connection.stringCommands().get(bytes(CACHE_KEY_PREFIX + key));
+            }
+            return null;
+        }, RedisSerializer.byteArray());
+
+        List<byte[]> values = new ArrayList<>(keys.size());
+        int reply = 0;
+        for (String key : keys) {
+            byte[] record = buckets ? (byte[]) replies.get(reply++) : null;
+            byte[] value = (byte[]) replies.get(reply++);
+            if (record != null) {
+                HashBucketStore.Entry entry = HashBucketStore.Entry.parse(key, record);
+                value = entry != null ? entry.value() : null;
+            } else if (value != null && startsWith(value, CHUNK_MANIFEST_MARKER)) {
+                value = readChunkedBytes(key, (ChunkManifest) redisTemplate.getValueSerializer().deserialize(value));
+            }
+            if (value != null) {
+                keyAccessStatistics.recordHit(CACHE_NAME, key);
+            } else {
+                keyAccessStatistics.recordMiss(CACHE_NAME, key);
+            }
+            values.add(value);
+        }
+        return values;
+    }
+
+    @Caching(
+        put = @CachePut(value = CACHE_NAME, key = "#cacheItem.key",
+                unless = "@hashBucketStore.enabled || @largeValueStore.exceedsThreshold(#result.value)"),
+        evict = @CacheEvict(value = CACHE_NAME, key = "#cacheItem.key",
+                condition = "@hashBucketStore.enabled || @largeValueStore.exceedsThreshold(#cacheItem.value)")
+    )
     public CacheItem setValue(CacheItem cacheItem) {
-        logger.info("Storing value for key: {}", cacheItem.getKey());
-        String redisKey = CACHE_KEY_PREFIX + cacheItem.getKey();
-        redisTemplate.opsForValue().set(redisKey, cacheItem.getValue());
-        logger.debug("Stored value: {} for key: {}", cacheItem.getValue(), cacheItem.getKey());
+        logger.debug("Storing value for key: {}", cacheItem.getKey());
+        Commit commit = storeValue(cacheItem.getKey(), cacheItem.getValue(), 0, null, false, tagsOf(cacheItem));
+        cacheItem.setVersion(commit.version());
+        cacheItem.setCreatedAt(localDateTime(commit.createdAt()));
+        cacheItem.setUpdatedAt(localDateTime(commit.updatedAt()));
+        cacheEventService.publish("SET", cacheItem.getKey());
+        logger.debug("Stored value: {} for key: {}", logValues.of(cacheItem.getValue()), cacheItem.getKey());
         return cacheItem;
     }
 
-    @CachePut(value = "cache", key = "#key")
+    @Caching(
+        put = @CachePut(value = CACHE_NAME, key = "#key",
+                unless = "@hashBucketStore.enabled || @largeValueStore.exceedsThreshold(#result)"),
+        evict = @CacheEvict(value = CACHE_NAME, key = "#key",
+                condition = "@hashBucketStore.enabled || @largeValueStore.exceedsThreshold(#value)")
+    )
     public Object updateValue(String key, Object value) {
-        logger.info("Updating value for key: {}", key);
-        String redisKey = CACHE_KEY_PREFIX + key;
-        redisTemplate.opsForValue().set(redisKey, value);
-        logger.debug("Updated value: {} for key: {}", value, key);
+        logger.debug("Updating value for key: {}", key);
+        storeValue(key, value, 0, null, false, null);
+        cacheEventService.publish("UPDATE", key);
+        logger.debug("Updated value: {} for key: {}", logValues.of(value), key);
         return value;
     }
 
-    @CacheEvict(value = "cache", key = "#key")
+    /**
+     * Updates an existing value only if its current version matches the expected one, or
+     * regardless of its version when none is given. The existence check is part of the commit,
+     * so an entry deleted concurrently is not re-created. Returns the new version, or null if
+     * the entry does not exist.
+     *
+     * @throws OptimisticLockingFailureException if the entry has been modified in the meantime
+     */
+    @CacheEvict(value = CACHE_NAME, key = "#key")
+    public Long compareAndUpdate(String key, Object value, Long expectedVersion) {
+        logger.debug("Updating value for key: {}, expected version: {}", key, expectedVersion);
+        Commit commit = storeValue(key, value, 0, expectedVersion, true, null);
+        if (commit == null) {
+            logger.debug("Not updating missing key: {}", key);
+            return null;
+        }
+        cacheEventService.publish("UPDATE", key);
+        logger.debug("Updated value: {} for key: {}, version: {}", logValues.of(value), key, commit.version());
+        return commit.version();
+    }
+
+    /**
+     * Returns the current version of an entry from its metadata hash without fetching the value,
+     * or null if the entry does not exist or predates versioning.
+     */
+    public Long getVersion(String key) {
+        Metadata metadata = getMetadata(key);
+        return metadata != null ? metadata.version() : null;
+    }
+
+    /**
+     * Returns the version and timestamps of an entry from its metadata hash or bucket header,
+     * without fetching the value, or null if the entry does not exist or predates versioning.
+     */
+    public Metadata getMetadata(String key) {
+        HashBucketStore.Entry entry = hashBucketStore.read(key);
+        if (entry != null) {
+            return new Metadata(entry.version(), entry.createdAt(), entry.updatedAt());
+        }
+        List<Object> fields = stringRedisTemplate.opsForHash().multiGet(META_KEY_PREFIX + key, List.of("v", "c", "u"));
+        if (fields.get(0) == null) {
+            return null;
+        }
+        return new Metadata(Long.parseLong(fields.get(0).toString()), parseLong(fields.get(1)), parseLong(fields.get(2)));
+    }
+
+    @CacheEvict(value = CACHE_NAME, key = "#key")
+    @SuppressWarnings("unchecked")
     public boolean deleteValue(String key) {
-        logger.info("Deleting value for key: {}", key);
-        String redisKey = CACHE_KEY_PREFIX + key;
-        Boolean result = redisTemplate.delete(redisKey);
-        logger.debug("Deleted key: {}, result: {}", key, result);
-        return Boolean.TRUE.equals(result);
+        logger.debug("Deleting value for key: {}", key);
+        // UNLINK frees large chunk hashes in the background instead of blocking Redis
+        List<Object> result = redisTemplate.execute(DELETE_SCRIPT, RedisSerializer.byteArray(), RAW_REPLY,
+                List.of(CACHE_KEY_PREFIX + key, META_KEY_PREFIX + key, largeValueStore.chunksKey(key),
+                        hashBucketStore.bucketKey(key)),
+                bytes(hashBucketStore.isEnabled() ? key : ""));
+        logger.debug("Deleted key: {}, result: {}", key, result.get(0));
+        Set<String> tags = TagIndexService.parse(string(result.get(1)));
+        if (!tags.isEmpty()) {
+            tagIndexService.remove(key, tags);
+        }
+        boolean deleted = ((Long) result.get(0)) > 0;
+        if (deleted) {
+            keyAccessStatistics.recordDeletes(CACHE_NAME, 1);
+            cacheEventService.publish("DELETE", key);
+        }
+        return deleted;
+    }
+
+    /**
+     * Deletes every entry carrying the tag. Members are unlinked in pipelined batches together
+     * with their metadata, chunks and cache region entries, so only the affected keys are touched.
+     * Returns the number of deleted entries.
+     */
+    public long invalidateTag(String tag) {
+        return invalidateTag(tag, keys -> { });
+    }
+
+    /**
+     * Deletes every entry carrying the tag like {@link #invalidateTag(String)}, passing each
+     * deleted batch of keys to the listener.
+     */
+    public long invalidateTag(String tag, Consumer<List<String>> deletedKeys) {
+        logger.info("Invalidating entries with tag: {}", tag);
+        long deleted = tagIndexService.invalidate(tag, keys -> {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (String key : keys) {
+                    connection.keyCommands().unlink(bytes(CACHE_KEY_PREFIX + key), bytes(META_KEY_PREFIX + key),
+                            bytes(largeValueStore.chunksKey(key)), bytes(CACHE_REGION_KEY_PREFIX + key));
+                    if (hashBucketStore.isEnabled()) {
+                        connection.hashCommands().hDel(bytes(hashBucketStore.bucketKey(key)), bytes(key));
+                    }
+                }
+                return null;
+            });
+            deletedKeys.accept(keys);
+        });
+        logger.info("Invalidated {} entries with tag: {}", deleted, tag);
+        if (deleted > 0) {
+            keyAccessStatistics.recordDeletes(CACHE_NAME, deleted);
+            cacheEventService.publish("INVALIDATE_TAG", tag);
+        }
+        return deleted;
     }
 
     public boolean hasKey(String key) {
         String redisKey = CACHE_KEY_PREFIX + key;
-        return Boolean.TRUE.equals(redisTemplate.hasKey(redisKey));
+        return hashBucketStore.contains(key) || Boolean.TRUE.equals(redisTemplate.hasKey(redisKey));
     }
 
     public Set<String> getAllKeys() {
         Set<String> keys = redisTemplate.keys(CACHE_KEY_PREFIX + "*");
-        return keys != null ? keys : new HashSet<>();
+        Set<String> allKeys = keys != null ? new HashSet<>(keys) : new HashSet<>();
+        for (String key : hashBucketStore.keys()) {
+            allKeys.add(CACHE_KEY_PREFIX + key);
+        }
+        return allKeys;
     }
 
-    public void setValueWithTTL(String key, Object value, long timeout, TimeUnit unit) {
-        logger.info("Storing value with TTL for key: {}, timeout: {} {}", key, timeout, unit);
-        String redisKey = CACHE_KEY_PREFIX + key;
-        redisTemplate.opsForValue().set(redisKey, value, timeout, unit);
+    @CacheEvict(value = CACHE_NAME, key = "#key")
+    public long setValueWithTTL(String key, Object value, long timeout, TimeUnit unit) {
+        return setValueWithTTL(key, value, timeout, unit, Set.of());
+    }
+
+    /**
+     * Stores a value that expires after the given timeout, shortened by the jitter policy of
+     * {@link CacheTtlService}. Returns the TTL that was applied, in milliseconds. The region copy
+     * is evicted rather than replaced, as the result is the TTL and not the value.
+     */
+    @CacheEvict(value = CACHE_NAME, key = "#key")
+    public long setValueWithTTL(String key, Object value, long timeout, TimeUnit unit, Set<String> tags) {
+        long ttlMillis = cacheTtlService.applyJitter(unit.toMillis(timeout));
+        logger.debug("Storing value with TTL for key: {}, timeout: {} {}, applied: {} ms", key, timeout, unit, ttlMillis);
+        storeValue(key, value, ttlMillis, null, false, tags);
+        cacheEventService.publish("SET_TTL", key);
+        return ttlMillis;
     }
 
     public Long getExpiration(String key) {
+        Long bucketExpiration = hashBucketStore.getExpiration(key);
+        if (bucketExpiration != null) {
+            return bucketExpiration;
+        }
         String redisKey = CACHE_KEY_PREFIX + key;
         return redisTemplate.getExpire(redisKey, TimeUnit.MILLISECONDS);
     }
 
-    @CacheEvict(value = "cache", allEntries = true)
+    /**
+     * Removes every entry together with all metadata, chunk and tag keys. Each key family is
+     * walked with SCAN and unlinked in batches, so neither KEYS nor a single huge UNLINK blocks
+     * Redis, and leftovers are removed even when no entry is left.
+     */
+    @CacheEvict(value = CACHE_NAME, allEntries = true)
     public void clearAllCache() {
         logger.info("Clearing all cache entries");
-        Set<String> keys = redisTemplate.keys(CACHE_KEY_PREFIX + "*");
-        if (keys != null && !keys.isEmpty()) {
-            redisTemplate.delete(keys);
-            logger.info("Cleared {} cache entries", keys.size());
+        long keys = unlinkMatching(CACHE_KEY_PREFIX + "*");
+        long buckets = unlinkMatching(hashBucketStore.bucketKeyPattern());
+        long related = unlinkMatching(META_KEY_PREFIX + "*")
+                + unlinkMatching(largeValueStore.chunksKey("*"))
+                + unlinkMatching(tagIndexService.tagKeyPattern());
+        stringRedisTemplate.unlink(tagIndexService.registryKey());
+        logger.info("Cleared {} cache keys, {} hash buckets and {} metadata, chunk and tag keys", keys, buckets, related);
+        if (keys > 0 || buckets > 0) {
+            cacheEventService.publish("CLEAR", "*");
+        }
+    }
+
+    private long unlinkMatching(String pattern) {
+        long unlinked = 0;
+        List<String> batch = new ArrayList<>(CLEAR_BATCH_SIZE);
+        try (Cursor<String> cursor = stringRedisTemplate.scan(
+                ScanOptions.scanOptions().match(pattern).count(CLEAR_BATCH_SIZE).build())) {
+            while (cursor.hasNext()) {
+                batch.add(cursor.next());
+                if (batch.size() == CLEAR_BATCH_SIZE) {
+                    unlinked += unlink(batch);
+                    batch.clear();
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            unlinked += unlink(batch);
+        }
+        return unlinked;
+    }
+
+    private long unlink(List<String> keys) {
+        Long unlinked = stringRedisTemplate.unlink(keys);
+        return unlinked != null ? unlinked : 0;
+    }
+
+    /**
+     * Writes a value, splitting it into chunks when it is above the large value threshold.
+     * The manifest or plain value is swapped in by a script that also bumps the version in the
+     * {@code meta:<key>} hash, so value and version always change together. The chunks of a
+     * replaced large value are released only after readers have been switched over, and the
+     * chunks of a commit that fails are released right away.
+     * Small values go to a hash bucket instead when {@link HashBucketStore} accepts them; an
+     * entry moves between the layouts whenever its size or TTL calls for the other one.
+     * Passing null tags keeps the tags of the existing entry. With {@code existing} set, or an
+     * expected version given, nothing is stored and null is returned when the entry does not exist.
+     */
+    @SuppressWarnings("unchecked")
+    private Commit storeValue(String key, Object value, long timeoutMillis, Long expectedVersion, boolean existing,
+                              Set<String> tags) {
+        Object stored = largeValueStore.measure(value)
+                ? largeValueStore.write(key, value)
+                : value;
+
+        RedisSerializer<Object> valueSerializer = (RedisSerializer<Object>) redisTemplate.getValueSerializer();
+        byte[] serialized = valueSerializer.serialize(stored);
+        byte[] expected = bytes(expectedVersion != null ? expectedVersion.toString() : existing ? "*" : "");
+        long nowMillis = System.currentTimeMillis();
+        byte[] now = bytes(Long.toString(nowMillis));
+        // A lone separator clears the tags, an empty argument keeps them
+        byte[] serializedTags = bytes(tags == null ? "" : tags.isEmpty() ? "," : TagIndexService.serialize(tags));
+        String bucketKey = hashBucketStore.bucketKey(key);
+        List<Object> result;
+        try {
+            if (stored == value && hashBucketStore.accepts(serialized.length, tags, timeoutMillis)) {
+                result = redisTemplate.execute(COMMIT_BUCKET_SCRIPT, RedisSerializer.byteArray(), RAW_REPLY,
+                        List.of(bucketKey, CACHE_KEY_PREFIX + key, META_KEY_PREFIX + key, VERSION_SEQUENCE_KEY),
+                        bytes(key), serialized, bytes(Long.toString(timeoutMillis)), expected, now, serializedTags,
+                        CHUNK_MANIFEST_MARKER);
+            } else {
+                result = redisTemplate.execute(COMMIT_SCRIPT, RedisSerializer.byteArray(), RAW_REPLY,
+                        List.of(CACHE_KEY_PREFIX + key, META_KEY_PREFIX + key, VERSION_SEQUENCE_KEY, bucketKey,
+                                largeValueStore.chunksKey(key)),
+                        serialized, bytes(Long.toString(timeoutMillis)), expected, now, serializedTags,
+                        bytes(hashBucketStore.isEnabled() ? key : ""), CHUNK_MANIFEST_MARKER,
+                        bytes(stored instanceof ChunkManifest manifest ? manifest.getGeneration() : ""),
+                        bytes(Long.toString(largeValueStore.getOrphanGrace().toMillis())));
+            }
+            if (((Long) result.get(0)) < 0) {
+                if (stored instanceof ChunkManifest rejected) {
+                    largeValueStore.deleteGeneration(key, rejected);
+                }
+                return null;
+            }
+            if (((Long) result.get(0)) == 0) {
+                throw new OptimisticLockingFailureException("Version mismatch for key " + key
+                        + ": expected " + expectedVersion + ", current " + result.get(1));
+            }
+        } catch (RuntimeException e) {
+            // Nothing references the chunks of a rejected or failed commit
+            if (stored instanceof ChunkManifest rejected) {
+                largeValueStore.discard(key, rejected, e);
+            }
+            throw e;
+        }
+        // Chunked values are counted with their compressed size, which is what Redis holds
+        keyAccessStatistics.recordPut(CACHE_NAME, key, stored instanceof ChunkManifest manifest
+                ? manifest.getCompressedSize() : serialized.length);
+        if (tags != null) {
+            tagIndexService.reindex(key, TagIndexService.parse(string(result.get(2))), tags);
+        }
+        // The scripts only return the previous value when it is a manifest
+        if (result.size() > 4 && valueSerializer.deserialize((byte[]) result.get(4)) instanceof ChunkManifest previous) {
+            largeValueStore.deleteGeneration(key, previous);
         }
+        return new Commit((Long) result.get(1), (Long) result.get(3), nowMillis);
+    }
+
+    private Object readChunked(String key, ChunkManifest manifest) {
+        try {
+            return largeValueStore.read(key, manifest);
+        } catch (UncheckedIOException e) {
+            if (!(e.getCause() instanceof LargeValueStore.ChunkMissingException)) {
+                throw e;
+            }
+            // The value was swapped while reading; retry once against the current manifest
+            Object current = redisTemplate.opsForValue().get(CACHE_KEY_PREFIX + key);
+            return current instanceof ChunkManifest latest ? largeValueStore.read(key, latest) : current;
+        }
+    }
+
+    private byte[] readChunkedBytes(String key, ChunkManifest manifest) {
+        try (InputStream in = largeValueStore.openStream(key, manifest)) {
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read chunked value for key: " + key, e);
+        }
+    }
+
+    private static boolean startsWith(byte[] value, byte[] prefix) {
+        return value.length >= prefix.length && Arrays.equals(value, 0, prefix.length, prefix, 0, prefix.length);
+    }
+
+    private static Long parseLong(Object value) {
+        return value != null ? Long.valueOf(value.toString()) : null;
+    }
+
+    private static LocalDateTime localDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+
+    private static Set<String> tagsOf(CacheItem cacheItem) {
+        return cacheItem.getTags() != null ? cacheItem.getTags() : Set.of();
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String string(Object bytes) {
+        return bytes != null ? new String((byte[]) bytes, StandardCharsets.UTF_8) : null;
+    }
+
+    /**
+     * Version and timestamps of an entry, in epoch milliseconds. The timestamps are null when
+     * the metadata hash does not hold them.
+     */
+    public record Metadata(long version, Long createdAt, Long updatedAt) {
+    }
+
+    private record Commit(long version, long createdAt, long updatedAt) {
     }
-}
\ No newline at end of file
+}
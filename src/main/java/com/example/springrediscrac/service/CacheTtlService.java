@@ -0,0 +1,504 @@
+package com.example.springrediscrac.service;
+
+import com.example.springrediscrac.service.RedisCircuitBreaker.RedisUnavailableException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Manages the TTLs of cache entries without rewriting their values.
+ * <p>
+ * With {@code app.cache.ttl.jitter} set to a fraction {@code f > 0}, every TTL passed to
+ * {@link CacheService#setValueWithTTL} is shortened by a random amount of up to {@code f} times
+ * the TTL, so that entries written together do not expire together. TTLs are only ever
+ * shortened, so the requested TTL still bounds how stale an entry can get.
+ * <p>
+ * Bulk updates select entries by key pattern (SCAN over the value keys and HSCAN over the hash
+ * buckets) or by tag (SSCAN of the tag index) and apply PEXPIRE or PERSIST in pipelined batches
+ * to the value key, its metadata and its chunks. Region copies ({@code cache::<key>}) are
+ * unlinked instead, and are re-read from the entry on the next access. Bucketed entries get
+ * HPEXPIRE/HPERSIST on Redis 7.4 and later; older servers cannot expire fields, so they are
+ * reported as skipped. Bulk updates started through {@link #startUpdate} run as background jobs,
+ * one at a time, whose counters advance batch by batch.
+ */
+@Service
+public class CacheTtlService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheTtlService.class);
+
+    // Replies of PTTL and HPTTL
+    private static final long NO_EXPIRY = -1;
+    private static final long MISSING = -2;
+
+    /**
+     * Number of expiry windows of a TTL summary; later expiries are counted together.
+     */
+    public static final int SUMMARY_WINDOWS = 60;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private HashBucketStore hashBucketStore;
+
+    @Autowired
+    private LargeValueStore largeValueStore;
+
+    @Autowired
+    private TagIndexService tagIndexService;
+
+    @Autowired
+    private RedisCircuitBreaker redisCircuitBreaker;
+
+    @Value("${app.cache.ttl.jitter:0}")
+    private double jitter;
+
+    @Value("${app.cache.ttl.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.cache.ttl.job-retention:1h}")
+    private Duration jobRetention;
+
+    private final Map<String, BulkJob> jobs = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor jobExecutor;
+
+    public CacheTtlService(@Value("${app.cache.ttl.max-queued-jobs:10}") int maxQueuedJobs) {
+        this.jobExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(maxQueuedJobs), runnable -> {
+                    Thread thread = new Thread(runnable, "cache-ttl-bulk");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    public double getJitter() {
+        return jitter;
+    }
+
+    /**
+     * Applies the configured jitter to a TTL in milliseconds; 0 (no expiry) is kept.
+     */
+    public long applyJitter(long ttlMillis) {
+        return applyJitter(ttlMillis, jitter);
+    }
+
+    public static long applyJitter(long ttlMillis, double jitter) {
+        long spread = (long) (ttlMillis * jitter);
+        if (ttlMillis <= 0 || spread <= 0) {
+            return ttlMillis;
+        }
+        return Math.max(1, ttlMillis - ThreadLocalRandom.current().nextLong(spread + 1));
+    }
+
+    /**
+     * Sets the TTL of every selected entry, each shortened by its own jitter, or removes the
+     * TTLs when {@code ttlMillis} is null.
+     */
+    public BulkResult updateTtl(Selection selection, Long ttlMillis, double jitter) {
+        long[] counts = new long[3];
+        updateTtl(selection, ttlMillis, jitter, batch -> {
+            counts[0] += batch.scanned();
+            counts[1] += batch.updated();
+            counts[2] += batch.skipped();
+        });
+        return new BulkResult(counts[0], counts[1], counts[2]);
+    }
+
+    private void updateTtl(Selection selection, Long ttlMillis, double jitter, Consumer<BulkResult> progress) {
+        forEachBatch(selection, keys -> {
+            long[] batch = updateBatch(keys, ttlMillis, jitter);
+            progress.accept(new BulkResult(keys.size(), batch[0], batch[1]));
+        });
+    }
+
+    /**
+     * Queues {@link #updateTtl} as a background job and returns it right away. Finished jobs are
+     * kept for {@code app.cache.ttl.job-retention}.
+     *
+     * @throws RejectedExecutionException if {@code app.cache.ttl.max-queued-jobs} are waiting
+     */
+    public BulkJob startUpdate(Selection selection, Long ttlMillis, double jitter) {
+        Instant expired = Instant.now().minus(jobRetention);
+        jobs.values().removeIf(job -> job.getFinishedAt() != null && job.getFinishedAt().isBefore(expired));
+
+        BulkJob job = new BulkJob(UUID.randomUUID().toString(), selection, ttlMillis, jitter);
+        jobs.put(job.getId(), job);
+        try {
+            jobExecutor.execute(() -> run(job));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            throw e;
+        }
+        return job;
+    }
+
+    /**
+     * Returns a queued, running or recently finished job, or null if there is none.
+     */
+    public BulkJob getJob(String id) {
+        return jobs.get(id);
+    }
+
+    private void run(BulkJob job) {
+        job.startedAt = Instant.now();
+        job.state = BulkJob.State.RUNNING;
+        BulkJob.State state = BulkJob.State.FAILED;
+        try {
+            redisCircuitBreaker.callUntimed(() -> {
+                updateTtl(job.getSelection(), job.getTtlMillis(), job.getJitter(), job::add);
+                return null;
+            });
+            state = BulkJob.State.COMPLETED;
+            logger.info("Updated TTLs of {} of {} entries in job {}", job.getUpdated(), job.getScanned(), job.getId());
+        } catch (RedisUnavailableException e) {
+            job.error = "Redis is unavailable";
+        } catch (RuntimeException e) {
+            logger.error("Bulk TTL job {} failed", job.getId(), e);
+            job.error = "Failed to update TTLs";
+        } finally {
+            // Set before the state, so a finished job always has its end time
+            job.finishedAt = Instant.now();
+            job.state = state;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jobExecutor.shutdownNow();
+    }
+
+    /**
+     * Returns the remaining TTL of each key in milliseconds: -1 if the entry does not expire,
+     * -2 if it does not exist.
+     */
+    public Map<String, Long> getTtls(List<String> keys) {
+        Map<String, Long> ttls = new LinkedHashMap<>();
+        for (int from = 0; from < keys.size(); from += batchSize) {
+            List<String> batch = keys.subList(from, Math.min(from + batchSize, keys.size()));
+            List<Long> values = ttlBatch(batch);
+            for (int i = 0; i < batch.size(); i++) {
+                ttls.put(batch.get(i), values.get(i));
+            }
+        }
+        return ttls;
+    }
+
+    /**
+     * Summarizes the TTLs of the selected entries: how many do not expire, the range of the
+     * remaining TTLs and how many expire in each {@code resolution} wide window from now, which
+     * shows entries that would expire together. Up to {@code sampleSize} keys are listed.
+     */
+    public Map<String, Object> summarize(Selection selection, Duration resolution, int windows, int sampleSize) {
+        long[] counts = new long[3];
+        long[] range = {Long.MAX_VALUE, 0};
+        TreeMap<Long, Long> expiring = new TreeMap<>();
+        long[] later = new long[1];
+        Map<String, Long> sample = new LinkedHashMap<>();
+        long resolutionMillis = resolution.toMillis();
+
+        forEachBatch(selection, keys -> {
+            List<Long> ttls = ttlBatch(keys);
+            for (int i = 0; i < keys.size(); i++) {
+                long ttl = ttls.get(i);
+                if (ttl == MISSING) {
+                    continue;
+                }
+                counts[0]++;
+                if (sample.size() < sampleSize) {
+                    sample.put(keys.get(i), ttl);
+                }
+                if (ttl == NO_EXPIRY) {
+                    counts[1]++;
+                    continue;
+                }
+                counts[2]++;
+                range[0] = Math.min(range[0], ttl);
+                range[1] = Math.max(range[1], ttl);
+                long window = ttl / resolutionMillis;
+                if (window < windows) {
+                    expiring.merge(window * resolution.toSeconds(), 1L, Long::sum);
+                } else {
+                    later[0]++;
+                }
+            }
+        });
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("entries", counts[0]);
+        summary.put("persistent", counts[1]);
+        summary.put("expiring", counts[2]);
+        summary.put("min_ttl_ms", counts[2] > 0 ? range[0] : null);
+        summary.put("max_ttl_ms", counts[2] > 0 ? range[1] : null);
+        summary.put("resolution_s", resolution.toSeconds());
+        List<Map<String, Long>> histogram = new ArrayList<>();
+        expiring.forEach((from, count) -> histogram.add(Map.of("from_s", from, "count", count)));
+        summary.put("expiring_within", histogram);
+        summary.put("expiring_later", later[0]);
+        summary.put("sample", sample);
+        return summary;
+    }
+
+    private long[] updateBatch(List<String> keys, Long ttlMillis, double jitter) {
+        boolean buckets = hashBucketStore.isEnabled();
+        boolean fieldExpiration = buckets && hashBucketStore.supportsFieldExpiration();
+        List<Object> replies = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String key : keys) {
+                Long ttl = ttlMillis != null ? applyJitter(ttlMillis, jitter) : null;
+                for (String redisKey : List.of(CacheService.CACHE_KEY_PREFIX + key,
+                        CacheService.META_KEY_PREFIX + key, largeValueStore.chunksKey(key))) {
+                    if (ttl != null) {
+                        connection.keyCommands().pExpire(bytes(redisKey), ttl);
+                    } else {
+                        connection.keyCommands().persist(bytes(redisKey));
+                    }
+                }
+                connection.keyCommands().unlink(bytes(CacheService.CACHE_REGION_KEY_PREFIX + key));
+                if (fieldExpiration) {
+                    fieldCommand(connection, ttl != null ? "HPEXPIRE" : "HPERSIST", key, ttl);
+                } else if (buckets) {
+                    connection.hashCommands().hExists(bytes(hashBucketStore.bucketKey(key)), bytes(key));
+                }
+            }
+            return null;
+        });
+
+        int repliesPerKey = buckets ? 5 : 4;
+        long updated = 0;
+        long skipped = 0;
+        for (int i = 0; i < keys.size(); i++) {
+            int first = i * repliesPerKey;
+            if (Boolean.TRUE.equals(replies.get(first))) {
+                updated++;
+            } else if (fieldExpiration && firstCode(replies.get(first + 4)) == 1) {
+                updated++;
+            } else if (buckets && !fieldExpiration && Boolean.TRUE.equals(replies.get(first + 4))) {
+                skipped++;
+            }
+        }
+        return new long[]{updated, skipped};
+    }
+
+    private List<Long> ttlBatch(List<String> keys) {
+        boolean buckets = hashBucketStore.isEnabled();
+        boolean fieldExpiration = buckets && hashBucketStore.supportsFieldExpiration();
+        List<Object> replies = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String key : keys) {
+                connection.keyCommands().pTtl(bytes(CacheService.CACHE_KEY_PREFIX + key));
+                if (fieldExpiration) {
+                    fieldCommand(connection, "HPTTL", key, null);
+                } else if (buckets) {
+                    connection.hashCommands().hExists(bytes(hashBucketStore.bucketKey(key)), bytes(key));
+                }
+            }
+            return null;
+        });
+
+        int repliesPerKey = buckets ? 2 : 1;
+        List<Long> ttls = new ArrayList<>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            Long ttl = (Long) replies.get(i * repliesPerKey);
+            if (ttl == null || ttl == MISSING) {
+                Object bucket = buckets ? replies.get(i * 2 + 1) : null;
+                if (fieldExpiration) {
+                    ttl = firstCode(bucket);
+                } else {
+                    ttl = Boolean.TRUE.equals(bucket) ? NO_EXPIRY : MISSING;
+                }
+            }
+            ttls.add(ttl);
+        }
+        return ttls;
+    }
+
+    private void fieldCommand(RedisConnection connection, String command, String key, Long ttl) {
+        byte[] bucketKey = bytes(hashBucketStore.bucketKey(key));
+        if (ttl != null) {
+            connection.execute(command, bucketKey, bytes(Long.toString(ttl)), bytes("FIELDS"), bytes("1"), bytes(key));
+        } else {
+            connection.execute(command, bucketKey, bytes("FIELDS"), bytes("1"), bytes(key));
+        }
+    }
+
+    /**
+     * Returns the per-field reply of a field expiration command for a single field.
+     */
+    private static long firstCode(Object reply) {
+        return reply instanceof List<?> codes && !codes.isEmpty() && codes.get(0) instanceof Long code ? code : MISSING;
+    }
+
+    private void forEachBatch(Selection selection, Consumer<List<String>> action) {
+        List<String> batch = new ArrayList<>(batchSize);
+        Consumer<String> collect = key -> {
+            batch.add(key);
+            if (batch.size() == batchSize) {
+                action.accept(batch);
+                batch.clear();
+            }
+        };
+
+        if (selection.tag() != null) {
+            try (Cursor<String> cursor = stringRedisTemplate.opsForSet().scan(tagIndexService.tagKey(selection.tag()),
+                    ScanOptions.scanOptions().count(batchSize).build())) {
+                cursor.forEachRemaining(collect);
+            }
+        } else {
+            ScanOptions options = ScanOptions.scanOptions()
+                    .match(CacheService.CACHE_KEY_PREFIX + selection.pattern()).count(batchSize).build();
+            try (Cursor<String> cursor = stringRedisTemplate.scan(options)) {
+                cursor.forEachRemaining(redisKey -> {
+                    // The pattern also matches the region copies, which are not entries of their own
+                    if (!redisKey.startsWith(CacheService.CACHE_REGION_KEY_PREFIX)) {
+                        collect.accept(redisKey.substring(CacheService.CACHE_KEY_PREFIX.length()));
+                    }
+                });
+            }
+            if (hashBucketStore.isEnabled()) {
+                ScanOptions fieldOptions = ScanOptions.scanOptions().match(selection.pattern()).count(batchSize).build();
+                for (int i = 0; i < hashBucketStore.getBucketCount(); i++) {
+                    try (Cursor<Map.Entry<Object, Object>> cursor = stringRedisTemplate.opsForHash()
+                            .scan(hashBucketStore.bucketKeyAt(i), fieldOptions)) {
+                        cursor.forEachRemaining(field -> collect.accept((String) field.getKey()));
+                    }
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            action.accept(batch);
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Entries selected by a glob-style key pattern, or by a tag.
+     */
+    public record Selection(String pattern, String tag) {
+
+        public static Selection ofPattern(String pattern) {
+            return new Selection(pattern, null);
+        }
+
+        public static Selection ofTag(String tag) {
+            return new Selection(null, tag);
+        }
+    }
+
+    /**
+     * Outcome of a bulk TTL update: the number of keys examined, of entries whose TTL was set
+     * or removed, and of bucketed entries left unchanged because Redis cannot expire fields.
+     */
+    public record BulkResult(long scanned, long updated, long skipped) {
+    }
+
+    /**
+     * A bulk TTL update running in the background. Only the job thread writes the counters.
+     */
+    public static class BulkJob {
+
+        public enum State { QUEUED, RUNNING, COMPLETED, FAILED }
+
+        private final String id;
+        private final Selection selection;
+        private final Long ttlMillis;
+        private final double jitter;
+        private final Instant createdAt = Instant.now();
+        private volatile State state = State.QUEUED;
+        private volatile Instant startedAt;
+        private volatile Instant finishedAt;
+        private volatile String error;
+        private volatile long scanned;
+        private volatile long updated;
+        private volatile long skipped;
+
+        BulkJob(String id, Selection selection, Long ttlMillis, double jitter) {
+            this.id = id;
+            this.selection = selection;
+            this.ttlMillis = ttlMillis;
+            this.jitter = jitter;
+        }
+
+        private void add(BulkResult batch) {
+            scanned += batch.scanned();
+            updated += batch.updated();
+            skipped += batch.skipped();
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public Selection getSelection() {
+            return selection;
+        }
+
+        /**
+         * Returns the requested TTL, or null if the TTLs are removed.
+         */
+        public Long getTtlMillis() {
+            return ttlMillis;
+        }
+
+        public double getJitter() {
+            return jitter;
+        }
+
+        public State getState() {
+            return state;
+        }
+
+        public Instant getCreatedAt() {
+            return createdAt;
+        }
+
+        public Instant getStartedAt() {
+            return startedAt;
+        }
+
+        public Instant getFinishedAt() {
+            return finishedAt;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        public long getScanned() {
+            return scanned;
+        }
+
+        public long getUpdated() {
+            return updated;
+        }
+
+        public long getSkipped() {
+            return skipped;
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package com.example.springrediscrac.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps track of the most accessed catalog ids and pre-loads them into the
+ * {@code cache_collection_attribute} region on startup and after a CRaC restore.
+ * <p>
+ * Access counts are collected locally and periodically merged into a Redis sorted set,
+ * so the snapshot survives restarts and is shared between instances. Scores halve every
+ * {@code app.warmup.half-life}, so the snapshot follows the current hot set.
+ */
+@Service
+@Lazy(false)
+public class CacheWarmupService implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheWarmupService.class);
+    static final String HOT_KEYS_KEY = "warmup:cache_collection_attribute";
+    static final String DECAYED_AT_KEY = HOT_KEYS_KEY + ":decayed-at";
+    private static final String CATALOG_CACHE_PREFIX = "cache_collection_attribute::";
+    private static final int MAX_TRACKED_IDS = 10_000;
+    private static final RedisScript<Long> MERGE_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/merge-hot-keys.lua"), Long.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private CatalogService catalogService;
+
+    @Value("${app.warmup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.warmup.max-keys:500}")
+    private int maxKeys;
+
+    @Value("${app.warmup.batch-size:50}")
+    private int batchSize;
+
+    @Value("${app.warmup.time-budget:5s}")
+    private Duration timeBudget;
+
+    @Value("${app.warmup.half-life:24h}")
+    private Duration halfLife;
+
+    private final Map<String, LongAdder> accessCounts = new ConcurrentHashMap<>();
+    private final ExecutorService executor;
+
+    public CacheWarmupService(@Value("${app.warmup.parallelism:4}") int parallelism) {
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "cache-warmup-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        warmUp("startup");
+    }
+
+    public void recordAccess(String id) {
+        if (!enabled) {
+            return;
+        }
+        LongAdder counter = accessCounts.get(id);
+        if (counter == null) {
+            if (accessCounts.size() >= MAX_TRACKED_IDS) {
+                return;
+            }
+            counter = accessCounts.computeIfAbsent(id, k -> new LongAdder());
+        }
+        counter.increment();
+    }
+
+    @Scheduled(fixedDelayString = "${app.warmup.persist-interval:60000}",
+            initialDelayString = "${app.warmup.persist-interval:60000}")
+    public void persistHotKeys() {
+        if (!enabled || accessCounts.isEmpty()) {
+            return;
+        }
+
+        Map<String, Long> snapshot = new HashMap<>();
+        accessCounts.forEach((id, counter) -> {
+            long count = counter.sumThenReset();
+            if (count > 0) {
+                snapshot.put(id, count);
+            }
+        });
+        accessCounts.values().removeIf(counter -> counter.sum() == 0);
+        if (snapshot.isEmpty()) {
+            return;
+        }
+
+        List<String> args = new ArrayList<>(3 + snapshot.size() * 2);
+        args.add(Long.toString(System.currentTimeMillis()));
+        args.add(Long.toString(halfLife.toMillis()));
+        // Keep only the top entries so the snapshot stays compact
+        args.add(Integer.toString(maxKeys));
+        snapshot.forEach((id, count) -> {
+            args.add(id);
+            args.add(Long.toString(count));
+        });
+        try {
+            stringRedisTemplate.execute(MERGE_SCRIPT, List.of(HOT_KEYS_KEY, DECAYED_AT_KEY), args.toArray());
+            logger.debug("Persisted access counts for {} catalog ids", snapshot.size());
+        } catch (DataAccessException e) {
+            logger.warn("Could not persist hot key snapshot: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Re-populates the catalog cache with the hottest ids within the configured time budget.
+     * Ids that are still cached in Redis are skipped, the rest are recomputed in parallel on the
+     * warm-up pool, one task per id.
+     */
+    public Map<String, Object> warmUp(String trigger) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("trigger", trigger);
+        if (!enabled) {
+            result.put("status", "DISABLED");
+            return result;
+        }
+
+        long start = System.nanoTime();
+        long deadline = start + timeBudget.toNanos();
+        AtomicInteger cached = new AtomicInteger();
+        AtomicInteger loaded = new AtomicInteger();
+
+        List<String> hotIds;
+        try {
+            Set<String> ids = stringRedisTemplate.opsForZSet().reverseRange(HOT_KEYS_KEY, 0, maxKeys - 1);
+            hotIds = ids != null ? new ArrayList<>(ids) : List.of();
+        } catch (DataAccessException e) {
+            logger.warn("Cache warm-up ({}) skipped, hot key snapshot unavailable: {}", trigger, e.getMessage());
+            result.put("status", "UNAVAILABLE");
+            return result;
+        }
+
+        // Each batch checks its ids in one pipeline, then every miss is loaded as a task of its
+        // own, so slow loads of one batch do not hold back the rest within the time budget
+        List<CompletableFuture<Void>> batches = new ArrayList<>();
+        for (int i = 0; i < hotIds.size(); i += batchSize) {
+            List<String> batch = hotIds.subList(i, Math.min(i + batchSize, hotIds.size()));
+            batches.add(CompletableFuture.supplyAsync(() -> findMisses(batch, deadline, cached), executor)
+                    .thenCompose(misses -> CompletableFuture.allOf(misses.stream()
+                            .map(id -> CompletableFuture.runAsync(() -> load(id, deadline, loaded), executor))
+                            .toArray(CompletableFuture[]::new))));
+        }
+
+        String status = "COMPLETED";
+        try {
+            CompletableFuture.allOf(batches.toArray(new CompletableFuture[0]))
+                    .get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            status = "TIME_BUDGET_EXCEEDED";
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            status = "INTERRUPTED";
+        } catch (Exception e) {
+            logger.warn("Cache warm-up ({}) failed: {}", trigger, e.getMessage());
+            status = "FAILED";
+        }
+
+        long elapsedMs = Duration.ofNanos(System.nanoTime() - start).toMillis();
+        logger.info("Cache warm-up ({}) {}: {} hot ids, {} already cached, {} loaded in {} ms",
+                trigger, status, hotIds.size(), cached.get(), loaded.get(), elapsedMs);
+
+        result.put("status", status);
+        result.put("hot_ids", hotIds.size());
+        result.put("already_cached", cached.get());
+        result.put("loaded", loaded.get());
+        result.put("elapsed_ms", elapsedMs);
+        return result;
+    }
+
+    private List<String> findMisses(List<String> ids, long deadline, AtomicInteger cached) {
+        if (System.nanoTime() >= deadline) {
+            return List.of();
+        }
+        List<Object> present = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            for (String id : ids) {
+                stringConnection.exists(CATALOG_CACHE_PREFIX + id);
+            }
+            return null;
+        });
+
+        List<String> misses = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i++) {
+            if (Boolean.TRUE.equals(present.get(i))) {
+                cached.incrementAndGet();
+            } else {
+                misses.add(ids.get(i));
+            }
+        }
+        return misses;
+    }
+
+    private void load(String id, long deadline, AtomicInteger loaded) {
+        if (System.nanoTime() >= deadline) {
+            return;
+        }
+        catalogService.getCachedData(id);
+        loaded.incrementAndGet();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,269 @@
+package com.example.springrediscrac.service;
+
+import com.example.springrediscrac.service.RedisCircuitBreaker.RedisUnavailableException;
+import com.example.springrediscrac.stats.KeyAccessStatistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.cache.RedisCache;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.connection.RedisStringCommands.SetOption;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Resolves many catalog ids at once for composite page reads.
+ * <p>
+ * Cached ids are read from the {@code cache_collection_attribute} region with a single MGET.
+ * Misses are loaded in parallel on a bounded pool until the request deadline, and the results
+ * are written back in one pipeline in the format {@link CatalogService#getCachedData} uses,
+ * so that later single reads hit. Loads still running at the deadline are reported as timed
+ * out and cached individually once they finish. Concurrent requests for the same missing id
+ * share one load.
+ */
+@Service
+public class CatalogBatchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogBatchService.class);
+
+    public enum Status { HIT, LOADED, STALE, TIMEOUT, REJECTED, FAILED }
+
+    @Autowired
+    private CatalogService catalogService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Autowired
+    private RedisCircuitBreaker redisCircuitBreaker;
+
+    @Autowired
+    private DegradedModeService degradedModeService;
+
+    @Autowired
+    private CacheWarmupService cacheWarmupService;
+
+    @Autowired
+    private KeyAccessStatistics keyAccessStatistics;
+
+    private final ThreadPoolExecutor executor;
+    private final Map<String, CompletableFuture<String>> loading = new ConcurrentHashMap<>();
+
+    public CatalogBatchService(@Value("${app.catalog.batch.parallelism:16}") int parallelism,
+                               @Value("${app.catalog.batch.queue-size:256}") int queueSize) {
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(parallelism, parallelism, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueSize), runnable -> {
+                    Thread thread = new Thread(runnable, "catalog-batch-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Returns a result per distinct id, in request order. Never waits longer than the timeout
+     * for misses; the Redis calls themselves are bounded by the command timeout.
+     */
+    public Map<String, Result> getAll(List<String> ids, Duration timeout) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        Map<String, Result> results = new LinkedHashMap<>();
+        ids.forEach(id -> results.put(id, null));
+        ids.forEach(cacheWarmupService::recordAccess);
+
+        RedisCache cache = (RedisCache) cacheManager.getCache(CatalogService.CACHE_NAME);
+        RedisCacheConfiguration config = cache.getCacheConfiguration();
+        List<String> keys = new ArrayList<>(results.keySet());
+        boolean redisAvailable = true;
+        try {
+            List<byte[]> values = redisCircuitBreaker.call(() -> redisTemplate.execute((RedisCallback<List<byte[]>>)
+                    connection -> connection.stringCommands().mGet(cacheKeys(config, keys))));
+            for (int i = 0; i < keys.size(); i++) {
+                byte[] value = values != null ? values.get(i) : null;
+                if (value != null) {
+                    String data = (String) config.getValueSerializationPair().read(ByteBuffer.wrap(value));
+                    results.put(keys.get(i), new Result(Status.HIT, data));
+                    keyAccessStatistics.recordHit(CatalogService.CACHE_NAME, keys.get(i));
+                } else {
+                    keyAccessStatistics.recordMiss(CatalogService.CACHE_NAME, keys.get(i));
+                }
+            }
+        } catch (RedisUnavailableException e) {
+            redisAvailable = false;
+            for (String id : keys) {
+                DegradedModeService.Snapshot snapshot = degradedModeService.lookup(CatalogService.CACHE_NAME, id);
+                if (snapshot != null) {
+                    results.put(id, new Result(Status.STALE, (String) snapshot.getValue()));
+                }
+            }
+        }
+
+        Map<String, CompletableFuture<String>> misses = new LinkedHashMap<>();
+        results.forEach((id, result) -> {
+            if (result == null) {
+                try {
+                    misses.put(id, load(id));
+                } catch (RejectedExecutionException e) {
+                    results.put(id, new Result(Status.REJECTED, null));
+                }
+            }
+        });
+
+        try {
+            CompletableFuture.allOf(misses.values().toArray(new CompletableFuture[0]))
+                    .get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            // Handled per id below
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        Map<String, String> loaded = new LinkedHashMap<>();
+        boolean writeBack = redisAvailable;
+        misses.forEach((id, future) -> {
+            if (!future.isDone()) {
+                results.put(id, new Result(Status.TIMEOUT, null));
+                if (writeBack) {
+                    future.thenAccept(data -> cacheLate(cache, id, data));
+                }
+            } else if (future.isCompletedExceptionally()) {
+                results.put(id, new Result(Status.FAILED, null));
+            } else {
+                String data = future.join();
+                loaded.put(id, data);
+                results.put(id, new Result(Status.LOADED, data));
+            }
+        });
+
+        if (writeBack && !loaded.isEmpty()) {
+            try {
+                redisCircuitBreaker.call(() -> redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                    loaded.forEach((id, data) -> {
+                        byte[] value = bytes(config.getValueSerializationPair().write(data));
+                        connection.stringCommands().set(cacheKey(config, id), value,
+                                expiration(config.getTtlFunction().getTimeToLive(id, data)), SetOption.upsert());
+                        keyAccessStatistics.recordPut(CatalogService.CACHE_NAME, id, value.length);
+                    });
+                    return null;
+                }));
+            } catch (RedisUnavailableException e) {
+                logger.warn("Could not cache {} loaded catalog ids: {}", loaded.size(), e.getMessage());
+            }
+        }
+        results.forEach((id, result) -> {
+            if (result.getValue() != null) {
+                degradedModeService.remember(CatalogService.CACHE_NAME, id, result.getValue(), null);
+            }
+        });
+        return results;
+    }
+
+    private CompletableFuture<String> load(String id) {
+        CompletableFuture<String> existing = loading.get(id);
+        if (existing != null) {
+            return existing;
+        }
+        CompletableFuture<String> future = new CompletableFuture<>();
+        existing = loading.putIfAbsent(id, future);
+        if (existing != null) {
+            return existing;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(catalogService.loadData(id));
+                } catch (RuntimeException e) {
+                    logger.warn("Failed to load catalog id: {}: {}", id, e.getMessage());
+                    future.completeExceptionally(e);
+                } finally {
+                    loading.remove(id, future);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            loading.remove(id, future);
+            throw e;
+        }
+        return future;
+    }
+
+    private void cacheLate(RedisCache cache, String id, String data) {
+        try {
+            redisCircuitBreaker.call(() -> {
+                cache.put(id, data);
+                return null;
+            });
+        } catch (RedisUnavailableException e) {
+            logger.debug("Could not cache late catalog id: {}: {}", id, e.getMessage());
+        }
+    }
+
+    private static byte[][] cacheKeys(RedisCacheConfiguration config, List<String> ids) {
+        byte[][] keys = new byte[ids.size()][];
+        for (int i = 0; i < ids.size(); i++) {
+            keys[i] = cacheKey(config, ids.get(i));
+        }
+        return keys;
+    }
+
+    private static byte[] cacheKey(RedisCacheConfiguration config, String id) {
+        return bytes(config.getKeySerializationPair().write(config.getKeyPrefixFor(CatalogService.CACHE_NAME) + id));
+    }
+
+    private static Expiration expiration(Duration ttl) {
+        return ttl.isZero() || ttl.isNegative() ? Expiration.persistent() : Expiration.from(ttl);
+    }
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public static class Result {
+
+        private final Status status;
+        private final String value;
+
+        Result(Status status, String value) {
+            this.status = status;
+            this.value = value;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        public String getValue() {
+            return value;
+        }
+    }
+}
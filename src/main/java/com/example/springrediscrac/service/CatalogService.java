@@ -1,7 +1,10 @@
 package com.example.springrediscrac.service;
 
+import com.example.springrediscrac.logging.LogValues;
+import com.example.springrediscrac.stats.KeyAccessStatistics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
@@ -12,30 +15,48 @@ public class CatalogService {
 
     private static final Logger logger = LoggerFactory.getLogger(CatalogService.class);
 
-    @Cacheable(value = "cache_collection_attribute", key = "#id")
+    public static final String CACHE_NAME = "cache_collection_attribute";
+
+    @Autowired
+    private LogValues logValues;
+
+    @Autowired
+    private KeyAccessStatistics keyAccessStatistics;
+
+    @Cacheable(value = CACHE_NAME, key = "#id")
     public String getCachedData(String id) {
+        return loadData(id);
+    }
+
+    /**
+     * Loads the data from the backend, bypassing the cache. The time taken is recorded as miss cost.
+     */
+    public String loadData(String id) {
         logger.info("Fetching data from expensive operation for id: {}", id);
+        long start = System.nanoTime();
         // Simulate expensive operation
         try {
             Thread.sleep(1000);
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
+        } finally {
+            keyAccessStatistics.recordLoad(CACHE_NAME, System.nanoTime() - start);
         }
         return "Expensive data for " + id + " at " + System.currentTimeMillis();
     }
 
-    @CachePut(value = "cache_collection_attribute", key = "#id")
+    @CachePut(value = CACHE_NAME, key = "#id")
     public String updateCache(String id, String data) {
-        logger.info("Updating cache for id: {} with data: {}", id, data);
+        logger.info("Updating cache for id: {} with data: {}", id, logValues.of(data));
         return data;
     }
 
-    @CacheEvict(value = "cache_collection_attribute", key = "#id")
+    @CacheEvict(value = CACHE_NAME, key = "#id")
     public void evictCache(String id) {
         logger.info("Evicting cache for id: {}", id);
     }
 
-    @CacheEvict(value = "cache_collection_attribute", allEntries = true)
+    @CacheEvict(value = CACHE_NAME, allEntries = true)
     public void evictAllCache() {
         logger.info("Evicting all cache entries");
     }
@@ -0,0 +1,234 @@
+package com.example.springrediscrac.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.function.Supplier;
+
+/**
+ * Keeps the application usable while Redis is unavailable.
+ * <p>
+ * Recently read and written values are kept in a snapshot bounded by the size of their JSON
+ * form, which is served with a stale marker while the {@link RedisCircuitBreaker} rejects calls.
+ * Values above the large-value threshold are not kept, so a few of them cannot evict the rest. Writes made in that time are
+ * queued and replayed in order once the breaker has closed again. Entries are addressed by
+ * region and key, like the Spring cache regions they mirror.
+ */
+@Service
+@Lazy(false)
+public class DegradedModeService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DegradedModeService.class);
+
+    @Autowired
+    private RedisCircuitBreaker redisCircuitBreaker;
+
+    @Autowired
+    private LargeValueStore largeValueStore;
+
+    @Value("${app.redis.degraded.max-staleness:10m}")
+    private Duration maxStaleness;
+
+    private final Cache<String, Snapshot> snapshot;
+    private final LinkedBlockingDeque<PendingWrite> pendingWrites;
+    private final ExecutorService replayExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "redis-write-replay");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public DegradedModeService(@Value("${app.redis.degraded.snapshot-max-size:64MB}") DataSize snapshotMaxSize,
+                               @Value("${app.redis.degraded.write-queue-size:1000}") int writeQueueSize) {
+        this.snapshot = Caffeine.newBuilder()
+                .maximumWeight(snapshotMaxSize.toBytes())
+                .weigher((String key, Snapshot entry) -> key.length() + entry.size)
+                .build();
+        this.pendingWrites = new LinkedBlockingDeque<>(writeQueueSize);
+    }
+
+    @PostConstruct
+    public void init() {
+        redisCircuitBreaker.onStateChange(state -> {
+            if (state == RedisCircuitBreaker.State.CLOSED && !pendingWrites.isEmpty()) {
+                replayExecutor.execute(this::replay);
+            }
+        });
+    }
+
+    public void remember(String region, String key, Object value, Long version) {
+        String snapshotKey = region + "::" + key;
+        long size = largeValueStore.sizeWithinThreshold(value);
+        if (size < 0) {
+            // Drop the older copy as well, it must not be served in place of the new value
+            snapshot.invalidate(snapshotKey);
+            return;
+        }
+        snapshot.put(snapshotKey, new Snapshot(value, version, System.currentTimeMillis(), (int) size));
+    }
+
+    public void forget(String region, String key) {
+        snapshot.invalidate(region + "::" + key);
+    }
+
+    public void forget(String region, Collection<String> keys) {
+        for (String key : keys) {
+            forget(region, key);
+        }
+    }
+
+    /**
+     * Drops every snapshot entry of a region, e.g. after all of its entries were evicted.
+     */
+    public void forgetAll(String region) {
+        String prefix = region + "::";
+        snapshot.asMap().keySet().removeIf(key -> key.startsWith(prefix));
+    }
+
+    /**
+     * Returns the last known value, or null if there is none or it is older than
+     * {@code app.redis.degraded.max-staleness}.
+     */
+    public Snapshot lookup(String region, String key) {
+        Snapshot entry = snapshot.getIfPresent(region + "::" + key);
+        if (entry == null || System.currentTimeMillis() - entry.getCachedAt() > maxStaleness.toMillis()) {
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * Runs a write through the circuit breaker. While queued writes are still waiting for
+     * replay the write is rejected as well, so that it can be queued behind them and does not
+     * get overwritten by an older value.
+     */
+    public <T> T write(Supplier<T> redisWrite) {
+        if (!pendingWrites.isEmpty()) {
+            throw new RedisCircuitBreaker.RedisUnavailableException("Queued writes are being replayed", null);
+        }
+        return redisCircuitBreaker.call(redisWrite);
+    }
+
+    /**
+     * Queues a write for replay. Returns false if the queue is full.
+     */
+    public boolean enqueue(String description, Runnable write) {
+        boolean queued = pendingWrites.offerLast(new PendingWrite(description, write));
+        if (!queued) {
+            logger.warn("Write queue full, rejecting {}", description);
+            return false;
+        }
+        logger.info("Queued {} for replay ({} pending)", description, pendingWrites.size());
+        if (redisCircuitBreaker.state() == RedisCircuitBreaker.State.CLOSED) {
+            // Queued behind a replay that is still running, or the breaker closed meanwhile
+            replayExecutor.execute(this::replay);
+        }
+        return true;
+    }
+
+    /**
+     * Retries the replay periodically, so that queued writes also act as probes for the
+     * breaker when there is no read traffic.
+     */
+    @Scheduled(fixedDelayString = "${app.redis.degraded.replay-interval:5000}")
+    public void retryReplay() {
+        if (!pendingWrites.isEmpty()) {
+            replayExecutor.execute(this::replay);
+        }
+    }
+
+    public int pendingWrites() {
+        return pendingWrites.size();
+    }
+
+    /**
+     * Replays queued writes in order. A write stays at the head of the queue until it has been
+     * applied or dropped as failed, so {@link #write} keeps rejecting new writes until the last
+     * queued one is done and none of them can be overwritten by an older replayed value.
+     * Runs on a single thread, which is the only one removing writes from the queue.
+     */
+    private void replay() {
+        int replayed = 0;
+        PendingWrite write;
+        while ((write = pendingWrites.peekFirst()) != null) {
+            PendingWrite current = write;
+            try {
+                redisCircuitBreaker.call(() -> {
+                    current.action.run();
+                    return null;
+                });
+                replayed++;
+            } catch (RedisCircuitBreaker.RedisUnavailableException e) {
+                // Keep the order, the next close of the breaker continues from here
+                if (replayed > 0 || e.getCause() != null) {
+                    logger.warn("Replay interrupted after {} writes: {}", replayed, e.getMessage());
+                }
+                return;
+            } catch (Exception e) {
+                logger.error("Dropping queued {} that failed on replay", current.description, e);
+            }
+            pendingWrites.pollFirst();
+        }
+        logger.info("Replayed {} queued writes", replayed);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (!pendingWrites.isEmpty()) {
+            logger.warn("Shutting down with {} queued writes that were not replayed", pendingWrites.size());
+        }
+        replayExecutor.shutdownNow();
+    }
+
+    public static class Snapshot {
+
+        private final Object value;
+        private final Long version;
+        private final long cachedAt;
+        private final int size;
+
+        Snapshot(Object value, Long version, long cachedAt, int size) {
+            this.value = value;
+            this.version = version;
+            this.cachedAt = cachedAt;
+            this.size = size;
+        }
+
+        public Object getValue() {
+            return value;
+        }
+
+        public Long getVersion() {
+            return version;
+        }
+
+        public long getCachedAt() {
+            return cachedAt;
+        }
+    }
+
+    private static class PendingWrite {
+
+        private final String description;
+        private final Runnable action;
+
+        PendingWrite(String description, Runnable action) {
+            this.description = description;
+            this.action = action;
+        }
+    }
+}
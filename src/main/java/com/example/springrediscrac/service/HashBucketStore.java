@@ -0,0 +1,248 @@
+package com.example.springrediscrac.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Stores small values as fields of shared hashes instead of one top-level key per entry.
+ * <p>
+ * An entry lives in the field {@code <key>} of the bucket {@code cache-bucket:<n>}, where
+ * {@code n} is derived from the key's hash code. With enough buckets every hash stays below
+ * {@code hash-max-listpack-entries}/{@code hash-max-listpack-value} and keeps the compact
+ * listpack (ziplist before Redis 7) encoding, which avoids the dictionary entry, object header
+ * and expiry entry that each top-level key costs. The metadata that the key layout keeps in
+ * {@code meta:<key>} is packed in front of the serialized value:
+ * <pre>
+ * &lt;version&gt;:&lt;created&gt;:&lt;updated - created&gt;:&lt;tags&gt;\n&lt;value&gt;
+ * </pre>
+ * with numbers in base 36 and times in epoch milliseconds. Entries with a TTL are only bucketed
+ * when Redis supports field expiration (7.4 and later), otherwise they keep their own keys.
+ */
+@Service
+public class HashBucketStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(HashBucketStore.class);
+    private static final String BUCKET_KEY_PREFIX = "cache-bucket:";
+    // Versions come from the commit script, where numbers are exact up to 2^53
+    private static final long MAX_VERSION = 1L << 53;
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Value("${app.cache.buckets.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.cache.buckets.count:4096}")
+    private int bucketCount;
+
+    @Value("${app.cache.buckets.max-value-size:64}")
+    private int maxValueSize;
+
+    private volatile Boolean fieldExpirationSupported;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns whether an entry with the given serialized value, tags and TTL belongs in a
+     * bucket. Null tags keep the current tags, whose size is not known here.
+     */
+    public boolean accepts(int serializedSize, Set<String> tags, long timeoutMillis) {
+        if (!enabled) {
+            return false;
+        }
+        // The version is not assigned yet and the creation time of an overwritten entry is not
+        // known, so both are counted at their widest; the age since creation is at most now
+        long now = System.currentTimeMillis();
+        String serializedTags = tags != null ? TagIndexService.serialize(tags) : "";
+        if (headerSize(MAX_VERSION, now, now, serializedTags) + serializedSize > maxValueSize) {
+            return false;
+        }
+        return timeoutMillis == 0 || supportsFieldExpiration();
+    }
+
+    public String bucketKey(String key) {
+        return BUCKET_KEY_PREFIX + Math.floorMod(key.hashCode(), bucketCount);
+    }
+
+    /**
+     * Returns the key of the bucket with the given index, for walking all buckets.
+     */
+    public String bucketKeyAt(int index) {
+        return BUCKET_KEY_PREFIX + index;
+    }
+
+    public int getBucketCount() {
+        return bucketCount;
+    }
+
+    public String bucketKeyPattern() {
+        return BUCKET_KEY_PREFIX + "*";
+    }
+
+    /**
+     * Reads the packed entry of a key, or returns null if it is not bucketed.
+     */
+    public Entry read(String key) {
+        if (!enabled) {
+            return null;
+        }
+        byte[] record = redisTemplate.execute((RedisCallback<byte[]>) connection ->
+                connection.hashCommands().hGet(bytes(bucketKey(key)), bytes(key)));
+        return record != null ? Entry.parse(key, record) : null;
+    }
+
+    public boolean contains(String key) {
+        return enabled && Boolean.TRUE.equals(redisTemplate.execute((RedisCallback<Boolean>) connection ->
+                connection.hashCommands().hExists(bytes(bucketKey(key)), bytes(key))));
+    }
+
+    /**
+     * Returns the remaining time to live of a bucketed entry in milliseconds, -1 if it does not
+     * expire, or null if the key is not bucketed.
+     */
+    public Long getExpiration(String key) {
+        if (!contains(key)) {
+            return null;
+        }
+        if (!supportsFieldExpiration()) {
+            return -1L;
+        }
+        Object reply = redisTemplate.execute((RedisCallback<Object>) connection ->
+                connection.execute("HPTTL", bytes(bucketKey(key)), bytes("FIELDS"), bytes("1"), bytes(key)));
+        return reply instanceof List<?> ttls && !ttls.isEmpty() ? (Long) ttls.get(0) : -1L;
+    }
+
+    /**
+     * Lists the keys of all bucketed entries, fetching the buckets in one pipeline.
+     */
+    public List<String> keys() {
+        if (!enabled) {
+            return List.of();
+        }
+        List<Object> buckets = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (int i = 0; i < bucketCount; i++) {
+                connection.hashCommands().hKeys(bytes(BUCKET_KEY_PREFIX + i));
+            }
+            return null;
+        }, RedisSerializer.string());
+        List<String> keys = new ArrayList<>();
+        for (Object fields : buckets) {
+            if (fields instanceof Set<?> set) {
+                set.forEach(field -> keys.add((String) field));
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Field expiration (HPEXPIRE, HPTTL) is available from Redis 7.4. The server version is
+     * looked up once and retried on the next call if Redis cannot be reached.
+     */
+    public boolean supportsFieldExpiration() {
+        Boolean supported = fieldExpirationSupported;
+        if (supported == null) {
+            try {
+                Properties info = redisTemplate.execute((RedisCallback<Properties>) connection ->
+                        connection.serverCommands().info("server"));
+                String version = info != null ? info.getProperty("redis_version") : null;
+                supported = version != null && compareVersions(version, "7.4") >= 0;
+                fieldExpirationSupported = supported;
+                logger.info("Redis {} {} field expiration; bucketed entries {} a TTL", version,
+                        supported ? "supports" : "does not support", supported ? "may have" : "never have");
+            } catch (DataAccessException e) {
+                logger.warn("Could not determine the Redis version: {}", e.getMessage());
+                return false;
+            }
+        }
+        return supported;
+    }
+
+    /**
+     * Returns the encoded size in bytes of {@code <version>:<created>:<delta>:<tags>\n}.
+     */
+    static int headerSize(long version, long createdAt, long delta, String tags) {
+        return Long.toString(version, 36).length() + Long.toString(createdAt, 36).length()
+                + Long.toString(delta, 36).length() + tags.getBytes(StandardCharsets.UTF_8).length + 4;
+    }
+
+    private static int compareVersions(String version, String other) {
+        int[] a = Arrays.stream(version.split("\\.")).mapToInt(Integer::parseInt).toArray();
+        int[] b = Arrays.stream(other.split("\\.")).mapToInt(Integer::parseInt).toArray();
+        for (int i = 0; i < Math.max(a.length, b.length); i++) {
+            int diff = (i < a.length ? a[i] : 0) - (i < b.length ? b[i] : 0);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return 0;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * A bucketed entry with its packed metadata; the value is still serialized.
+     */
+    public record Entry(long version, long createdAt, long updatedAt, Set<String> tags, byte[] value) {
+
+        /**
+         * Parses a record, or returns null if it has no valid header so that it reads as a miss.
+         */
+        static Entry parse(String key, byte[] record) {
+            int newline = indexOf(record, (byte) '\n');
+            String[] header = newline >= 0
+                    ? new String(record, 0, newline, StandardCharsets.UTF_8).split(":", 4) : null;
+            if (header == null || header.length < 4) {
+                logger.warn("Ignoring bucketed entry {} without a valid header", key);
+                return null;
+            }
+            try {
+                long createdAt = Long.parseLong(header[1], 36);
+                return new Entry(Long.parseLong(header[0], 36), createdAt, createdAt + Long.parseLong(header[2], 36),
+                        TagIndexService.parse(header[3]), Arrays.copyOfRange(record, newline + 1, record.length));
+            } catch (NumberFormatException e) {
+                logger.warn("Ignoring bucketed entry {} without a valid header", key);
+                return null;
+            }
+        }
+
+        /**
+         * Returns the tags from the header of a record read as a string, or null for a null or
+         * malformed record.
+         */
+        public static String tags(String record) {
+            int newline = record != null ? record.indexOf('\n') : -1;
+            if (newline < 0) {
+                return null;
+            }
+            String[] header = record.substring(0, newline).split(":", 4);
+            return header.length == 4 ? header[3] : null;
+        }
+
+        private static int indexOf(byte[] record, byte b) {
+            for (int i = 0; i < record.length; i++) {
+                if (record[i] == b) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,426 @@
+package com.example.springrediscrac.service;
+
+import com.example.springrediscrac.model.ChunkManifest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Stores values above a size threshold as gzip-compressed, fixed-size chunks.
+ * <p>
+ * Chunks live as fields of a single {@code chunks:<key>} hash, named {@code <generation>:<index>},
+ * while the regular {@code cache:<key>} entry holds a small {@link ChunkManifest}. A new write
+ * uses a fresh generation, so readers keep seeing the old chunks until the manifest is swapped.
+ * Values are streamed through the compressor chunk by chunk, so neither Redis nor the heap
+ * ever has to hold the whole payload in one allocation.
+ * <p>
+ * Generations start with their write time in base 36. A write that fails releases its own
+ * chunks, and chunks left behind by a process that died mid-write are swept by the next commit
+ * of the key once they are older than {@code app.cache.large-value.orphan-grace}.
+ */
+@Service
+public class LargeValueStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(LargeValueStore.class);
+    private static final String CHUNKS_KEY_PREFIX = "chunks:";
+    private static final String ENCODING = "gzip";
+    // Chunks sent to Redis in one pipeline while a value is written
+    private static final int CHUNKS_PER_PIPELINE = 16;
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.cache.large-value.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.cache.large-value.threshold:262144}")
+    private int threshold;
+
+    @Value("${app.cache.large-value.chunk-size:65536}")
+    private int chunkSize;
+
+    @Value("${app.cache.large-value.orphan-grace:10m}")
+    private Duration orphanGrace;
+
+    // Weakly referenced, so a remembered value does not outlive the write it was measured for
+    private final ThreadLocal<Measurement> lastMeasurement = new ThreadLocal<>();
+
+    /**
+     * Returns whether the JSON form of the value is larger than the threshold. Serialization
+     * stops as soon as the threshold is crossed, so the check is bounded for huge values. The
+     * value last passed to {@link #measure} on the same thread is not measured again, so the
+     * cache annotations of a write reuse the measurement of the write itself.
+     */
+    public boolean exceedsThreshold(Object value) {
+        if (!enabled || value == null) {
+            return false;
+        }
+        return measured(value) < 0;
+    }
+
+    /**
+     * Measures the value like {@link #exceedsThreshold} and remembers the result for further
+     * checks of the same instance on this thread.
+     */
+    public boolean measure(Object value) {
+        if (!enabled || value == null) {
+            return false;
+        }
+        long size = size(value);
+        lastMeasurement.set(new Measurement(new WeakReference<>(value), size));
+        return size < 0;
+    }
+
+    /**
+     * Returns the size of the JSON form of the value in bytes, or -1 if it is larger than the
+     * threshold. Reuses the last {@link #measure} of the same instance on this thread.
+     */
+    public long sizeWithinThreshold(Object value) {
+        return value == null ? 0 : measured(value);
+    }
+
+    private long measured(Object value) {
+        Measurement last = lastMeasurement.get();
+        if (last != null && last.value().get() == value) {
+            return last.size();
+        }
+        return size(value);
+    }
+
+    private long size(Object value) {
+        ThresholdOutputStream out = new ThresholdOutputStream(threshold);
+        try {
+            objectMapper.writeValue(out, value);
+            return out.count;
+        } catch (IOException e) {
+            for (Throwable t = e; t != null; t = t.getCause()) {
+                if (t instanceof ThresholdExceededException) {
+                    return -1;
+                }
+            }
+            throw new UncheckedIOException("Failed to measure value size", e);
+        }
+    }
+
+    public String chunksKey(String key) {
+        return CHUNKS_KEY_PREFIX + key;
+    }
+
+    /**
+     * Returns how long the chunks of an uncommitted generation are kept before a commit of the
+     * same key may release them.
+     */
+    public Duration getOrphanGrace() {
+        return orphanGrace;
+    }
+
+    /**
+     * Writes the chunks of a value under a new generation. The caller publishes the returned
+     * manifest once all chunks are in place, and sets the TTL of the chunk hash together with
+     * the one of the manifest.
+     */
+    public ChunkManifest write(String key, Object value) {
+        String generation = Long.toString(System.currentTimeMillis(), 36) + "-"
+                + UUID.randomUUID().toString().substring(0, 6);
+        ChunkWriter chunkWriter = new ChunkWriter(key, generation);
+        CountingOutputStream uncompressed;
+        try (GZIPOutputStream gzip = new GZIPOutputStream(chunkWriter, 8192)) {
+            uncompressed = new CountingOutputStream(gzip);
+            objectMapper.writeValue(uncompressed, value);
+        } catch (IOException | RuntimeException e) {
+            RuntimeException failure = e instanceof RuntimeException runtime ? runtime
+                    : new UncheckedIOException("Failed to write chunks for key: " + key, (IOException) e);
+            discard(key, generation, chunkWriter.chunkCount, failure);
+            throw failure;
+        }
+
+        ChunkManifest manifest = new ChunkManifest(generation, chunkWriter.chunkCount,
+                uncompressed.count, chunkWriter.totalBytes, ENCODING);
+        logger.debug("Wrote {} for key: {}", manifest, key);
+        return manifest;
+    }
+
+    /**
+     * Opens a stream over the uncompressed JSON of a chunked value. Chunks are fetched one at
+     * a time as the stream is consumed.
+     */
+    public InputStream openStream(String key, ChunkManifest manifest) {
+        try {
+            return new GZIPInputStream(new ChunkInputStream(key, manifest), 8192);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open chunks for key: " + key, e);
+        }
+    }
+
+    public Object read(String key, ChunkManifest manifest) {
+        try (InputStream in = openStream(key, manifest)) {
+            return objectMapper.readValue(in, Object.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read chunks for key: " + key, e);
+        }
+    }
+
+    /**
+     * Removes the chunks of a generation that is no longer referenced by the manifest.
+     */
+    public void deleteGeneration(String key, ChunkManifest manifest) {
+        deleteChunks(key, manifest.getGeneration(), manifest.getChunkCount());
+    }
+
+    /**
+     * Releases the chunks of a generation whose manifest was not committed. A failure to do so
+     * is attached to the original one, and the chunks are left to the orphan sweep.
+     */
+    public void discard(String key, ChunkManifest manifest, RuntimeException failure) {
+        discard(key, manifest.getGeneration(), manifest.getChunkCount(), failure);
+    }
+
+    private void discard(String key, String generation, int chunkCount, RuntimeException failure) {
+        try {
+            deleteChunks(key, generation, chunkCount);
+        } catch (RuntimeException e) {
+            failure.addSuppressed(e);
+        }
+    }
+
+    private void deleteChunks(String key, String generation, int chunkCount) {
+        byte[][] fields = new byte[chunkCount][];
+        for (int i = 0; i < fields.length; i++) {
+            fields[i] = field(generation, i);
+        }
+        if (fields.length > 0) {
+            redisTemplate.execute((RedisCallback<Long>) connection ->
+                    connection.hashCommands().hDel(bytes(chunksKey(key)), fields));
+        }
+    }
+
+    private static byte[] field(String generation, int index) {
+        return bytes(generation + ":" + index);
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private class ChunkWriter extends OutputStream {
+
+        private final byte[] chunksKey;
+        private final String generation;
+        private final byte[] buffer = new byte[chunkSize];
+        private final List<byte[]> pending = new ArrayList<>(CHUNKS_PER_PIPELINE);
+        private int position;
+        private int chunkCount;
+        private long totalBytes;
+
+        ChunkWriter(String key, String generation) {
+            this.chunksKey = bytes(chunksKey(key));
+            this.generation = generation;
+        }
+
+        @Override
+        public void write(int b) {
+            buffer[position++] = (byte) b;
+            if (position == buffer.length) {
+                flushChunk();
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            while (len > 0) {
+                int n = Math.min(len, buffer.length - position);
+                System.arraycopy(b, off, buffer, position, n);
+                position += n;
+                off += n;
+                len -= n;
+                if (position == buffer.length) {
+                    flushChunk();
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            if (position > 0) {
+                flushChunk();
+            }
+            sendPending();
+        }
+
+        private void flushChunk() {
+            // Pipelined chunks are encoded later, so each one needs its own copy of the buffer
+            pending.add(Arrays.copyOf(buffer, position));
+            totalBytes += position;
+            chunkCount++;
+            position = 0;
+            if (pending.size() == CHUNKS_PER_PIPELINE) {
+                sendPending();
+            }
+        }
+
+        private void sendPending() {
+            if (pending.isEmpty()) {
+                return;
+            }
+            int first = chunkCount - pending.size();
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (int i = 0; i < pending.size(); i++) {
+                    connection.hashCommands().hSet(chunksKey, field(generation, first + i), pending.get(i));
+                }
+                return null;
+            });
+            pending.clear();
+        }
+    }
+
+    private class ChunkInputStream extends InputStream {
+
+        private final byte[] chunksKey;
+        private final ChunkManifest manifest;
+        private int nextChunk;
+        private ByteArrayInputStream current = new ByteArrayInputStream(new byte[0]);
+
+        ChunkInputStream(String key, ChunkManifest manifest) {
+            this.chunksKey = bytes(chunksKey(key));
+            this.manifest = manifest;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!ensureAvailable()) {
+                return -1;
+            }
+            return current.read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!ensureAvailable()) {
+                return -1;
+            }
+            return current.read(b, off, len);
+        }
+
+        private boolean ensureAvailable() throws IOException {
+            while (current.available() == 0) {
+                if (nextChunk >= manifest.getChunkCount()) {
+                    return false;
+                }
+                byte[] field = field(manifest.getGeneration(), nextChunk);
+                byte[] chunk = redisTemplate.execute((RedisCallback<byte[]>) connection ->
+                        connection.hashCommands().hGet(chunksKey, field));
+                if (chunk == null) {
+                    throw new ChunkMissingException("Chunk " + nextChunk + " of generation "
+                            + manifest.getGeneration() + " is no longer available");
+                }
+                current = new ByteArrayInputStream(chunk);
+                nextChunk++;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Thrown when a chunk disappears while reading, typically because the value was
+     * overwritten or deleted concurrently.
+     */
+    public static class ChunkMissingException extends IOException {
+        public ChunkMissingException(String message) {
+            super(message);
+        }
+    }
+
+    private record Measurement(WeakReference<Object> value, long size) {
+    }
+
+    private static class ThresholdExceededException extends IOException {
+        ThresholdExceededException() {
+            super(null, null);
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+
+    private static class ThresholdOutputStream extends OutputStream {
+
+        private final long limit;
+        private long count;
+
+        ThresholdOutputStream(long limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            add(1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            add(len);
+        }
+
+        private void add(int n) throws ThresholdExceededException {
+            count += n;
+            if (count > limit) {
+                throw new ThresholdExceededException();
+            }
+        }
+    }
+
+    private static class CountingOutputStream extends OutputStream {
+
+        private final OutputStream delegate;
+        private long count;
+
+        CountingOutputStream(OutputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            delegate.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            delegate.write(b, off, len);
+            count += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            delegate.flush();
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package com.example.springrediscrac.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Circuit breaker for Redis calls.
+ * <p>
+ * While closed, the outcome of the last {@code window-size} calls is kept; the breaker opens
+ * when the share of failed or slow calls reaches its threshold. While open, calls are rejected
+ * with {@link RedisUnavailableException} without touching Redis. After {@code open-duration}
+ * the breaker lets {@code probe-calls} requests through; it closes when all of them succeed
+ * and opens again on the first failure.
+ */
+@Component
+public class RedisCircuitBreaker {
+
+    private static final Logger logger = LoggerFactory.getLogger(RedisCircuitBreaker.class);
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final boolean enabled;
+    private final int minimumCalls;
+    private final int failureRateThreshold;
+    private final int slowCallRateThreshold;
+    private final long slowCallNanos;
+    private final long openNanos;
+    private final int probeCalls;
+
+    // Ring buffer with the outcomes of the last calls while closed
+    private final boolean[] failed;
+    private final boolean[] slow;
+    private int position;
+    private int recorded;
+    private int failures;
+    private int slowCalls;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int probesStarted;
+    private int probesSucceeded;
+
+    private final List<Consumer<State>> listeners = new CopyOnWriteArrayList<>();
+
+    public RedisCircuitBreaker(@Value("${app.redis.circuit-breaker.enabled:true}") boolean enabled,
+                               @Value("${app.redis.circuit-breaker.window-size:50}") int windowSize,
+                               @Value("${app.redis.circuit-breaker.minimum-calls:10}") int minimumCalls,
+                               @Value("${app.redis.circuit-breaker.failure-rate-threshold:50}") int failureRateThreshold,
+                               @Value("${app.redis.circuit-breaker.slow-call-threshold:500ms}") Duration slowCallThreshold,
+                               @Value("${app.redis.circuit-breaker.slow-call-rate-threshold:80}") int slowCallRateThreshold,
+                               @Value("${app.redis.circuit-breaker.open-duration:10s}") Duration openDuration,
+                               @Value("${app.redis.circuit-breaker.probe-calls:3}") int probeCalls) {
+        this.enabled = enabled;
+        this.failed = new boolean[windowSize];
+        this.slow = new boolean[windowSize];
+        this.minimumCalls = Math.min(minimumCalls, windowSize);
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallNanos = slowCallThreshold.toNanos();
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.openNanos = openDuration.toNanos();
+        this.probeCalls = probeCalls;
+    }
+
+    /**
+     * Runs a Redis call through the breaker. Redis failures are recorded and rethrown as
+     * {@link RedisUnavailableException}; other exceptions count as a successful round trip
+     * and are rethrown unchanged.
+     */
+    public <T> T call(Supplier<T> redisCall) {
+        return call(redisCall, true);
+    }
+
+    /**
+     * Like {@link #call(Supplier)}, but only failures are recorded. For calls whose latency is
+     * dominated by other work, such as a cache miss that loads from the backend.
+     */
+    public <T> T callUntimed(Supplier<T> redisCall) {
+        return call(redisCall, false);
+    }
+
+    private <T> T call(Supplier<T> redisCall, boolean timed) {
+        if (!enabled) {
+            return redisCall.get();
+        }
+        if (!tryAcquire()) {
+            throw new RedisUnavailableException("Redis circuit breaker is open", null);
+        }
+        long start = System.nanoTime();
+        T result;
+        try {
+            result = redisCall.get();
+        } catch (RuntimeException e) {
+            boolean redisFailure = isRedisFailure(e);
+            onResult(redisFailure, timed ? System.nanoTime() - start : 0);
+            if (redisFailure) {
+                throw new RedisUnavailableException("Redis call failed: " + e.getMessage(), e);
+            }
+            throw e;
+        }
+        onResult(false, timed ? System.nanoTime() - start : 0);
+        return result;
+    }
+
+    static boolean isRedisFailure(Throwable e) {
+        // A rejected compare-and-set is an answer from Redis, not a failure
+        return e instanceof DataAccessException && !(e instanceof ConcurrencyFailureException);
+    }
+
+    private synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openedAt < openNanos) {
+                return false;
+            }
+            transition(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (probesStarted >= probeCalls) {
+                return false;
+            }
+            probesStarted++;
+        }
+        return true;
+    }
+
+    private void onResult(boolean callFailed, long nanos) {
+        boolean callSlow = nanos > slowCallNanos;
+        State changed = null;
+        synchronized (this) {
+            if (state == State.HALF_OPEN) {
+                if (callFailed || callSlow) {
+                    changed = transition(State.OPEN);
+                } else if (++probesSucceeded >= probeCalls) {
+                    changed = transition(State.CLOSED);
+                }
+            } else if (state == State.CLOSED) {
+                record(callFailed, callSlow);
+                if (recorded >= minimumCalls
+                        && (failures * 100 >= failureRateThreshold * recorded
+                        || slowCalls * 100 >= slowCallRateThreshold * recorded)) {
+                    logger.warn("Opening Redis circuit breaker: {} failed and {} slow of the last {} calls",
+                            failures, slowCalls, recorded);
+                    changed = transition(State.OPEN);
+                }
+            }
+        }
+        if (changed != null) {
+            for (Consumer<State> listener : listeners) {
+                listener.accept(changed);
+            }
+        }
+    }
+
+    private void record(boolean callFailed, boolean callSlow) {
+        if (recorded == failed.length) {
+            failures -= failed[position] ? 1 : 0;
+            slowCalls -= slow[position] ? 1 : 0;
+        } else {
+            recorded++;
+        }
+        failed[position] = callFailed;
+        slow[position] = callSlow;
+        failures += callFailed ? 1 : 0;
+        slowCalls += callSlow ? 1 : 0;
+        position = (position + 1) % failed.length;
+    }
+
+    private State transition(State next) {
+        logger.info("Redis circuit breaker {} -> {}", state, next);
+        state = next;
+        if (next == State.OPEN) {
+            openedAt = System.nanoTime();
+        } else if (next == State.HALF_OPEN) {
+            probesStarted = 0;
+            probesSucceeded = 0;
+        } else {
+            position = 0;
+            recorded = 0;
+            failures = 0;
+            slowCalls = 0;
+        }
+        return next;
+    }
+
+    /**
+     * Opens the breaker without waiting for failed calls, for callers that already know Redis
+     * is unreachable. Recovery then follows the usual {@code open-duration} and probe cycle.
+     */
+    public void open(String reason) {
+        if (!enabled) {
+            return;
+        }
+        State changed = null;
+        synchronized (this) {
+            if (state != State.OPEN) {
+                logger.warn("Opening Redis circuit breaker: {}", reason);
+                changed = transition(State.OPEN);
+            }
+        }
+        if (changed != null) {
+            for (Consumer<State> listener : listeners) {
+                listener.accept(changed);
+            }
+        }
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+
+    /**
+     * Registers a listener for state changes. Listeners are called on the thread of the call
+     * that caused the change and must not block.
+     */
+    public void onStateChange(Consumer<State> listener) {
+        listeners.add(listener);
+    }
+
+    public static class RedisUnavailableException extends RuntimeException {
+
+        public RedisUnavailableException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+}
@@ -23,8 +23,16 @@ public class RedisHealthService {
     @Autowired
     private RedisConnectionFactory redisConnectionFactory;
 
+    @Autowired
+    private RedisCircuitBreaker redisCircuitBreaker;
+
+    @Autowired
+    private DegradedModeService degradedModeService;
+
     public Map<String, Object> checkHealth() {
         Map<String, Object> health = new HashMap<>();
+        health.put("circuit_breaker", redisCircuitBreaker.state());
+        health.put("queued_writes", degradedModeService.pendingWrites());
         
         try {
             // Test basic connection with ping
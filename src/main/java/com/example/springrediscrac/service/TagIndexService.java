@@ -0,0 +1,241 @@
+package com.example.springrediscrac.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Maintains tag indexes for cache entries.
+ * <p>
+ * Each tag is a Redis set {@code tag:<name>} of cache keys, and the tags of an entry are kept in
+ * the {@code t} field of its metadata hash, or in the header of its hash bucket field, so that
+ * they can be diffed on overwrite. All known tag
+ * names are tracked in {@code tags:all}, which the periodic sweep walks to drop members whose
+ * entries have expired.
+ */
+@Service
+@Lazy(false)
+public class TagIndexService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TagIndexService.class);
+    private static final String TAG_KEY_PREFIX = "tag:";
+    private static final String TAG_REGISTRY_KEY = "tags:all";
+    private static final String SEPARATOR = ",";
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private HashBucketStore hashBucketStore;
+
+    @Value("${app.cache.tags.batch-size:500}")
+    private int batchSize;
+
+    public static String serialize(Set<String> tags) {
+        return String.join(SEPARATOR, tags);
+    }
+
+    public static Set<String> parse(String tags) {
+        if (tags == null || tags.isEmpty()) {
+            return Set.of();
+        }
+        return new LinkedHashSet<>(Arrays.asList(tags.split(SEPARATOR)));
+    }
+
+    public static boolean isValidTag(String tag) {
+        return tag != null && !tag.isBlank() && !tag.contains(SEPARATOR);
+    }
+
+    /**
+     * Moves a key from its previous tag sets to the new ones in a single pipeline. Nothing is
+     * sent to Redis when the tags did not change.
+     */
+    public void reindex(String key, Set<String> previousTags, Set<String> tags) {
+        if (previousTags.equals(tags)) {
+            return;
+        }
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            for (String tag : previousTags) {
+                if (!tags.contains(tag)) {
+                    stringConnection.sRem(TAG_KEY_PREFIX + tag, key);
+                }
+            }
+            for (String tag : tags) {
+                if (!previousTags.contains(tag)) {
+                    stringConnection.sAdd(TAG_KEY_PREFIX + tag, key);
+                    stringConnection.sAdd(TAG_REGISTRY_KEY, tag);
+                }
+            }
+            return null;
+        });
+    }
+
+    public void remove(String key, Set<String> tags) {
+        reindex(key, tags, Set.of());
+    }
+
+    /**
+     * Walks the members of a tag in batches and hands each batch to the deleter. Members whose
+     * metadata no longer carries the tag (the entry expired and was re-created untagged) are
+     * only dropped from the index. Only the members of each handled batch are removed from the
+     * tag set, so keys tagged while the invalidation runs keep their index entry. Returns the
+     * number of keys passed to the deleter.
+     */
+    public long invalidate(String tag, Consumer<List<String>> deleter) {
+        String tagKey = TAG_KEY_PREFIX + tag;
+        long deleted = 0;
+        List<String> batch = new ArrayList<>(batchSize);
+        try (Cursor<String> cursor = stringRedisTemplate.opsForSet()
+                .scan(tagKey, ScanOptions.scanOptions().count(batchSize).build())) {
+            while (cursor.hasNext()) {
+                batch.add(cursor.next());
+                if (batch.size() == batchSize) {
+                    deleted += invalidateBatch(tag, batch, deleter);
+                    batch.clear();
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            deleted += invalidateBatch(tag, batch, deleter);
+        }
+        Long remaining = stringRedisTemplate.opsForSet().size(tagKey);
+        if (remaining == null || remaining == 0) {
+            stringRedisTemplate.opsForSet().remove(TAG_REGISTRY_KEY, tag);
+        }
+        return deleted;
+    }
+
+    private long invalidateBatch(String tag, List<String> keys, Consumer<List<String>> deleter) {
+        List<Object> currentTags = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            for (String key : keys) {
+                stringConnection.hGet(CacheService.META_KEY_PREFIX + key, "t");
+                if (hashBucketStore.isEnabled()) {
+                    stringConnection.hGet(hashBucketStore.bucketKey(key), key);
+                }
+            }
+            return null;
+        });
+
+        int repliesPerKey = hashBucketStore.isEnabled() ? 2 : 1;
+        List<String> tagged = new ArrayList<>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            String tags = (String) currentTags.get(i * repliesPerKey);
+            if (tags == null && repliesPerKey == 2) {
+                tags = HashBucketStore.Entry.tags((String) currentTags.get(i * 2 + 1));
+            }
+            if (parse(tags).contains(tag)) {
+                tagged.add(keys.get(i));
+            }
+        }
+        if (!tagged.isEmpty()) {
+            deleter.accept(tagged);
+        }
+        stringRedisTemplate.opsForSet().remove(TAG_KEY_PREFIX + tag, keys.toArray());
+        return tagged.size();
+    }
+
+    /**
+     * Removes members whose entries no longer exist, e.g. because they expired, and forgets
+     * tags that have become empty.
+     */
+    @Scheduled(fixedDelayString = "${app.cache.tags.sweep-interval:300000}",
+            initialDelayString = "${app.cache.tags.sweep-interval:300000}")
+    public void sweep() {
+        try {
+            Set<String> tags = stringRedisTemplate.opsForSet().members(TAG_REGISTRY_KEY);
+            if (tags == null) {
+                return;
+            }
+            long removed = 0;
+            for (String tag : tags) {
+                removed += sweepTag(tag);
+            }
+            if (removed > 0) {
+                logger.info("Tag sweep removed {} expired members from {} tags", removed, tags.size());
+            }
+        } catch (DataAccessException e) {
+            logger.warn("Tag sweep failed: {}", e.getMessage());
+        }
+    }
+
+    private long sweepTag(String tag) {
+        String tagKey = TAG_KEY_PREFIX + tag;
+        long removed = 0;
+        List<String> batch = new ArrayList<>(batchSize);
+        try (Cursor<String> cursor = stringRedisTemplate.opsForSet()
+                .scan(tagKey, ScanOptions.scanOptions().count(batchSize).build())) {
+            while (cursor.hasNext()) {
+                batch.add(cursor.next());
+                if (batch.size() == batchSize) {
+                    removed += removeExpired(tagKey, batch);
+                    batch.clear();
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            removed += removeExpired(tagKey, batch);
+        }
+
+        Long remaining = stringRedisTemplate.opsForSet().size(tagKey);
+        if (remaining == null || remaining == 0) {
+            stringRedisTemplate.opsForSet().remove(TAG_REGISTRY_KEY, tag);
+        }
+        return removed;
+    }
+
+    private int removeExpired(String tagKey, List<String> keys) {
+        List<Object> exists = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            for (String key : keys) {
+                stringConnection.exists(CacheService.CACHE_KEY_PREFIX + key);
+                if (hashBucketStore.isEnabled()) {
+                    stringConnection.hExists(hashBucketStore.bucketKey(key), key);
+                }
+            }
+            return null;
+        });
+        int repliesPerKey = hashBucketStore.isEnabled() ? 2 : 1;
+        List<String> expired = new ArrayList<>();
+        for (int i = 0; i < keys.size(); i++) {
+            if (!Boolean.TRUE.equals(exists.get(i * repliesPerKey))
+                    && (repliesPerKey == 1 || !Boolean.TRUE.equals(exists.get(i * 2 + 1)))) {
+                expired.add(keys.get(i));
+            }
+        }
+        if (!expired.isEmpty()) {
+            stringRedisTemplate.opsForSet().remove(tagKey, expired.toArray());
+        }
+        return expired.size();
+    }
+
+    public String tagKey(String tag) {
+        return TAG_KEY_PREFIX + tag;
+    }
+
+    public String tagKeyPattern() {
+        return TAG_KEY_PREFIX + "*";
+    }
+
+    public String registryKey() {
+        return TAG_REGISTRY_KEY;
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.springrediscrac.stats;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Actuator endpoint {@code /actuator/cachestats} with the access statistics of the cache regions.
+ * {@code DELETE} resets them, e.g. before measuring the effect of a TTL change.
+ */
+@Component
+@Endpoint(id = "cachestats")
+public class CacheStatisticsEndpoint {
+
+    @Autowired
+    private KeyAccessStatistics keyAccessStatistics;
+
+    private volatile Instant since = Instant.now();
+
+    @ReadOperation
+    public Map<String, Object> statistics() {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("since", since.toString());
+        response.put("regions", keyAccessStatistics.snapshot());
+        return response;
+    }
+
+    @ReadOperation
+    public Map<String, Object> region(@Selector String region) {
+        Map<String, Object> statistics = keyAccessStatistics.snapshot(region);
+        if (statistics == null) {
+            // Answered with 404 by the actuator
+            return null;
+        }
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("since", since.toString());
+        response.put("region", region);
+        response.putAll(statistics);
+        return response;
+    }
+
+    @DeleteOperation
+    public void reset() {
+        keyAccessStatistics.reset();
+        since = Instant.now();
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.springrediscrac.stats;
+
+import com.example.springrediscrac.service.CacheService;
+import com.example.springrediscrac.service.CatalogService;
+import com.example.springrediscrac.service.RedisCircuitBreaker;
+import com.example.springrediscrac.service.RedisCircuitBreaker.RedisUnavailableException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-region access statistics of the {@code cache} and {@code cache_collection_attribute} regions.
+ * <p>
+ * Recording only bumps striped counters and never touches Redis. The keys seen by each region
+ * are buffered and added in batches to a HyperLogLog {@code stats:keys:<region>}, so the number
+ * of unique keys is estimated (with about 0.8% error) in 12 KB per region whatever the keyspace
+ * size. Counters are local to the instance; the HyperLogLog is shared by all instances.
+ */
+@Component
+public class KeyAccessStatistics {
+
+    private static final Logger logger = LoggerFactory.getLogger(KeyAccessStatistics.class);
+    static final String UNIQUE_KEYS_PREFIX = "stats:keys:";
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private RedisCircuitBreaker redisCircuitBreaker;
+
+    private final int keyBufferSize;
+    private final Map<String, RegionStatistics> regions = new ConcurrentHashMap<>();
+
+    public KeyAccessStatistics(@Value("${app.cache.stats.key-buffer-size:10000}") int keyBufferSize) {
+        this.keyBufferSize = keyBufferSize;
+        region(CacheService.CACHE_NAME);
+        region(CatalogService.CACHE_NAME);
+    }
+
+    public void recordHit(String region, String key) {
+        RegionStatistics statistics = region(region);
+        statistics.hits.increment();
+        statistics.recordKey(key);
+    }
+
+    public void recordMiss(String region, String key) {
+        RegionStatistics statistics = region(region);
+        statistics.misses.increment();
+        statistics.recordKey(key);
+    }
+
+    public void recordPut(String region, String key, long valueSize) {
+        RegionStatistics statistics = region(region);
+        statistics.puts.increment();
+        statistics.recordSize(valueSize);
+        statistics.recordKey(key);
+    }
+
+    public void recordDeletes(String region, long count) {
+        region(region).deletes.add(count);
+    }
+
+    public void recordExpiration(String region) {
+        region(region).expirations.increment();
+    }
+
+    public void recordEviction(String region) {
+        region(region).evictions.increment();
+    }
+
+    /**
+     * Records the time spent computing a value after a miss.
+     */
+    public void recordLoad(String region, long nanos) {
+        region(region).recordLoad(nanos);
+    }
+
+    /**
+     * Returns the statistics of every region, with the unique key estimates read from Redis.
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        regions.keySet().stream().sorted().forEach(name -> snapshot.put(name, snapshot(name)));
+        return snapshot;
+    }
+
+    /**
+     * Returns the statistics of one region, or null if nothing was recorded for it.
+     */
+    public Map<String, Object> snapshot(String region) {
+        RegionStatistics statistics = regions.get(region);
+        if (statistics == null) {
+            return null;
+        }
+        Map<String, Object> snapshot = statistics.snapshot();
+        Map<String, Object> uniqueKeys = new LinkedHashMap<>();
+        uniqueKeys.put("estimate", uniqueKeys(region));
+        uniqueKeys.put("pending", statistics.pendingKeys());
+        uniqueKeys.put("dropped", statistics.droppedKeys.sum());
+        snapshot.put("unique_keys", uniqueKeys);
+        return snapshot;
+    }
+
+    /**
+     * Resets the counters and the unique key estimates of all regions.
+     */
+    public void reset() {
+        regions.values().forEach(statistics -> {
+            statistics.reset();
+            statistics.clearKeys();
+        });
+        try {
+            stringRedisTemplate.delete(regions.keySet().stream().map(name -> UNIQUE_KEYS_PREFIX + name).toList());
+        } catch (DataAccessException e) {
+            logger.warn("Could not reset unique key estimates: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.cache.stats.flush-interval:1000}")
+    public void flushKeys() {
+        Map<String, List<String>> batches = new LinkedHashMap<>();
+        regions.forEach((name, statistics) -> {
+            List<String> keys = new ArrayList<>();
+            statistics.drainKeys(keys);
+            if (!keys.isEmpty()) {
+                batches.put(name, keys);
+            }
+        });
+        if (batches.isEmpty()) {
+            return;
+        }
+        try {
+            redisCircuitBreaker.call(() -> stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection stringConnection = (StringRedisConnection) connection;
+                batches.forEach((name, keys) -> stringConnection.pfAdd(UNIQUE_KEYS_PREFIX + name, keys.toArray(new String[0])));
+                return null;
+            }));
+        } catch (RedisUnavailableException e) {
+            // Losing a batch only lowers the estimate; the counters are unaffected
+            logger.debug("Could not add accessed keys to the unique key estimates: {}", e.getMessage());
+        }
+    }
+
+    private Long uniqueKeys(String region) {
+        try {
+            return redisCircuitBreaker.call(() -> stringRedisTemplate.opsForHyperLogLog().size(UNIQUE_KEYS_PREFIX + region));
+        } catch (RedisUnavailableException e) {
+            return null;
+        }
+    }
+
+    private RegionStatistics region(String name) {
+        return regions.computeIfAbsent(name, key -> new RegionStatistics(keyBufferSize));
+    }
+}
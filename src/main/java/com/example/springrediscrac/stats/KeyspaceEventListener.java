@@ -0,0 +1,140 @@
+package com.example.springrediscrac.stats;
+
+import com.example.springrediscrac.service.CacheService;
+import com.example.springrediscrac.service.CatalogService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+
+/**
+ * Counts expired and evicted cache entries from Redis keyevent notifications.
+ * <p>
+ * Redis publishes these only when {@code notify-keyspace-events} contains {@code E} and
+ * {@code x}/{@code e}, otherwise the counters stay at zero. The setting is server-wide, so it is
+ * only changed on startup with {@code app.cache.stats.configure-keyspace-notifications}; by
+ * default the listener just subscribes and warns if flags are missing. The check runs on a
+ * background thread when the context starts, so that a slow Redis does not hold up startup.
+ * Entries are attributed by key prefix; region copies ({@code cache::}) and metadata are ignored
+ * so that each entry counts once, and entries packed into hash buckets have no per-entry events.
+ */
+@Component
+@ConditionalOnProperty(name = "app.cache.stats.keyspace-notifications", havingValue = "true", matchIfMissing = true)
+public class KeyspaceEventListener implements MessageListener, SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(KeyspaceEventListener.class);
+    private static final String REQUIRED_FLAGS = "Exe";
+    private static final String CACHE_KEY_PREFIX = "cache:";
+    private static final String REGION_COPY_PREFIX = CacheService.CACHE_NAME + "::";
+    private static final String CATALOG_KEY_PREFIX = CatalogService.CACHE_NAME + "::";
+
+    // Check once the Lettuce connection factory (phase 0) has started
+    private static final int PHASE = 1;
+
+    @Autowired
+    private KeyAccessStatistics keyAccessStatistics;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Value("${app.cache.stats.configure-keyspace-notifications:false}")
+    private boolean configureNotifications;
+
+    private volatile boolean running;
+
+    @Override
+    public void start() {
+        running = true;
+        Thread checker = new Thread(this::checkNotifications, "keyspace-notifications-check");
+        checker.setDaemon(true);
+        checker.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    void checkNotifications() {
+        try {
+            Properties config = stringRedisTemplate.execute((RedisCallback<Properties>)
+                    connection -> connection.serverCommands().getConfig("notify-keyspace-events"));
+            String current = config != null ? config.getProperty("notify-keyspace-events", "") : "";
+            String flags = mergeFlags(current);
+            if (flags.equals(current)) {
+                return;
+            }
+            if (!configureNotifications) {
+                logger.warn("Redis notify-keyspace-events={} lacks flags of '{}', expirations and evictions will not "
+                        + "be counted", current, REQUIRED_FLAGS);
+                return;
+            }
+            stringRedisTemplate.execute((RedisCallback<Void>) connection -> {
+                connection.serverCommands().setConfig("notify-keyspace-events", flags);
+                return null;
+            });
+            logger.info("Enabled Redis keyevent notifications: notify-keyspace-events={}", flags);
+        } catch (DataAccessException e) {
+            logger.warn("Could not {} Redis keyevent notifications, expirations and evictions will not be counted "
+                    + "unless notify-keyspace-events includes '{}': {}", configureNotifications ? "enable" : "check",
+                    REQUIRED_FLAGS, e.getMessage());
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String channel = new String(message.getChannel(), StandardCharsets.UTF_8);
+        String region = region(new String(message.getBody(), StandardCharsets.UTF_8));
+        if (region == null) {
+            return;
+        }
+        if (channel.endsWith(":expired")) {
+            keyAccessStatistics.recordExpiration(region);
+        } else if (channel.endsWith(":evicted")) {
+            keyAccessStatistics.recordEviction(region);
+        }
+    }
+
+    static String region(String key) {
+        if (key.startsWith(CATALOG_KEY_PREFIX)) {
+            return CatalogService.CACHE_NAME;
+        }
+        if (key.startsWith(CACHE_KEY_PREFIX) && !key.startsWith(REGION_COPY_PREFIX)) {
+            return CacheService.CACHE_NAME;
+        }
+        return null;
+    }
+
+    static String mergeFlags(String current) {
+        StringBuilder flags = new StringBuilder(current);
+        for (char flag : REQUIRED_FLAGS.toCharArray()) {
+            // A covers all event classes, x and e included
+            boolean covered = flags.indexOf(String.valueOf(flag)) >= 0 || (flag != 'E' && flags.indexOf("A") >= 0);
+            if (!covered) {
+                flags.append(flag);
+            }
+        }
+        return flags.toString();
+    }
+}
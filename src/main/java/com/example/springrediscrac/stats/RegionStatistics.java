@@ -0,0 +1,174 @@
+package com.example.springrediscrac.stats;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of one cache region. Every counter is a {@link LongAdder} (or accumulator), so
+ * recording from many request threads does not contend on a shared cache line.
+ * <p>
+ * Value sizes go into power-of-two buckets: bucket {@code i} holds sizes up to {@code 2^i}
+ * bytes. Accessed keys are buffered for the HyperLogLog of unique keys in slots picked at
+ * random, so concurrent recorders rarely meet on the same slot and never take a lock. A key
+ * whose slot is still taken is dropped, so the buffer samples the keys once it fills up.
+ */
+class RegionStatistics {
+
+    private static final int SIZE_BUCKETS = 32;
+
+    final LongAdder hits = new LongAdder();
+    final LongAdder misses = new LongAdder();
+    final LongAdder puts = new LongAdder();
+    final LongAdder deletes = new LongAdder();
+    final LongAdder expirations = new LongAdder();
+    final LongAdder evictions = new LongAdder();
+    final LongAdder loads = new LongAdder();
+    final LongAdder loadNanos = new LongAdder();
+    final LongAccumulator maxLoadNanos = new LongAccumulator(Math::max, 0);
+    final LongAdder droppedKeys = new LongAdder();
+    private final AtomicReferenceArray<String> pendingKeys;
+
+    private final LongAdder[] sizes = new LongAdder[SIZE_BUCKETS];
+    private final LongAccumulator maxSize = new LongAccumulator(Math::max, 0);
+
+    RegionStatistics(int keyBufferSize) {
+        for (int i = 0; i < SIZE_BUCKETS; i++) {
+            sizes[i] = new LongAdder();
+        }
+        this.pendingKeys = new AtomicReferenceArray<>(keyBufferSize);
+    }
+
+    void recordKey(String key) {
+        int slot = ThreadLocalRandom.current().nextInt(pendingKeys.length());
+        if (pendingKeys.get(slot) != null || !pendingKeys.compareAndSet(slot, null, key)) {
+            droppedKeys.increment();
+        }
+    }
+
+    /**
+     * Moves the buffered keys to the given list and frees their slots.
+     */
+    void drainKeys(List<String> keys) {
+        for (int i = 0; i < pendingKeys.length(); i++) {
+            if (pendingKeys.get(i) != null) {
+                String key = pendingKeys.getAndSet(i, null);
+                if (key != null) {
+                    keys.add(key);
+                }
+            }
+        }
+    }
+
+    int pendingKeys() {
+        int pending = 0;
+        for (int i = 0; i < pendingKeys.length(); i++) {
+            if (pendingKeys.get(i) != null) {
+                pending++;
+            }
+        }
+        return pending;
+    }
+
+    void clearKeys() {
+        for (int i = 0; i < pendingKeys.length(); i++) {
+            pendingKeys.set(i, null);
+        }
+    }
+
+    void recordSize(long bytes) {
+        int bucket = bytes <= 1 ? 0 : 64 - Long.numberOfLeadingZeros(bytes - 1);
+        sizes[Math.min(bucket, SIZE_BUCKETS - 1)].increment();
+        maxSize.accumulate(bytes);
+    }
+
+    void recordLoad(long nanos) {
+        loads.increment();
+        loadNanos.add(nanos);
+        maxLoadNanos.accumulate(nanos);
+    }
+
+    Map<String, Object> snapshot() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long loadCount = loads.sum();
+
+        Map<String, Object> region = new LinkedHashMap<>();
+        region.put("gets", hitCount + missCount);
+        region.put("hits", hitCount);
+        region.put("misses", missCount);
+        region.put("hit_ratio", hitCount + missCount > 0 ? round((double) hitCount / (hitCount + missCount)) : null);
+        region.put("puts", puts.sum());
+        region.put("deletes", deletes.sum());
+        region.put("expirations", expirations.sum());
+        region.put("evictions", evictions.sum());
+
+        Map<String, Object> load = new LinkedHashMap<>();
+        load.put("count", loadCount);
+        load.put("total_ms", round(loadNanos.sum() / 1e6));
+        load.put("mean_ms", loadCount > 0 ? round(loadNanos.sum() / 1e6 / loadCount) : null);
+        load.put("max_ms", round(maxLoadNanos.get() / 1e6));
+        region.put("miss_cost", load);
+        region.put("value_size_bytes", sizeSnapshot());
+        return region;
+    }
+
+    private Map<String, Object> sizeSnapshot() {
+        long[] counts = new long[SIZE_BUCKETS];
+        long total = 0;
+        for (int i = 0; i < SIZE_BUCKETS; i++) {
+            counts[i] = sizes[i].sum();
+            total += counts[i];
+        }
+        Map<String, Object> histogram = new LinkedHashMap<>();
+        Map<String, Long> buckets = new LinkedHashMap<>();
+        for (int i = 0; i < SIZE_BUCKETS; i++) {
+            if (counts[i] > 0) {
+                buckets.put("le_" + (1L << i), counts[i]);
+            }
+        }
+        histogram.put("count", total);
+        // Percentiles are the upper bound of the bucket they fall into
+        histogram.put("p50", percentile(counts, total, 0.5));
+        histogram.put("p90", percentile(counts, total, 0.9));
+        histogram.put("p99", percentile(counts, total, 0.99));
+        histogram.put("max", maxSize.get());
+        histogram.put("buckets", buckets);
+        return histogram;
+    }
+
+    private static Long percentile(long[] counts, long total, double quantile) {
+        if (total == 0) {
+            return null;
+        }
+        long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return 1L << i;
+            }
+        }
+        return 1L << (counts.length - 1);
+    }
+
+    void reset() {
+        for (LongAdder adder : new LongAdder[]{hits, misses, puts, deletes, expirations, evictions,
+                loads, loadNanos, droppedKeys}) {
+            adder.reset();
+        }
+        for (LongAdder size : sizes) {
+            size.reset();
+        }
+        maxLoadNanos.reset();
+        maxSize.reset();
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 1000) / 1000.0;
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.springrediscrac.stats;
+
+import com.example.springrediscrac.service.CacheService;
+import org.springframework.data.redis.cache.CacheStatistics;
+import org.springframework.data.redis.cache.CacheStatisticsCollector;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Records the accesses of the Spring cache regions in {@link KeyAccessStatistics}.
+ * <p>
+ * Of the {@code cache} region only hits are recorded: it holds copies of entries that
+ * {@link CacheService} stores and reads itself, in any layout, so a region miss is not a miss
+ * yet and that service records the outcome. Clearing a region is not counted as deletes, as the
+ * number of removed keys is unknown.
+ */
+public class StatisticsRedisCacheWriter implements RedisCacheWriter {
+
+    private final RedisCacheWriter delegate;
+    private final KeyAccessStatistics statistics;
+
+    public StatisticsRedisCacheWriter(RedisCacheWriter delegate, KeyAccessStatistics statistics) {
+        this.delegate = delegate;
+        this.statistics = statistics;
+    }
+
+    @Override
+    public byte[] get(String name, byte[] key) {
+        return recordGet(name, key, delegate.get(name, key));
+    }
+
+    @Override
+    public byte[] get(String name, byte[] key, Duration ttl) {
+        return recordGet(name, key, delegate.get(name, key, ttl));
+    }
+
+    @Override
+    public byte[] get(String name, byte[] key, Supplier<byte[]> valueLoader, Duration ttl, boolean timeToIdleEnabled) {
+        boolean[] loaded = new boolean[1];
+        byte[] value = delegate.get(name, key, () -> {
+            loaded[0] = true;
+            byte[] computed = valueLoader.get();
+            if (tracked(name) && computed != null) {
+                statistics.recordPut(name, id(name, key), computed.length);
+            }
+            return computed;
+        }, ttl, timeToIdleEnabled);
+        if (!loaded[0]) {
+            statistics.recordHit(name, id(name, key));
+        } else if (tracked(name)) {
+            statistics.recordMiss(name, id(name, key));
+        }
+        return value;
+    }
+
+    @Override
+    public boolean supportsAsyncRetrieve() {
+        return delegate.supportsAsyncRetrieve();
+    }
+
+    @Override
+    public CompletableFuture<byte[]> retrieve(String name, byte[] key) {
+        return delegate.retrieve(name, key).thenApply(value -> recordGet(name, key, value));
+    }
+
+    @Override
+    public CompletableFuture<byte[]> retrieve(String name, byte[] key, Duration ttl) {
+        return delegate.retrieve(name, key, ttl).thenApply(value -> recordGet(name, key, value));
+    }
+
+    @Override
+    public void put(String name, byte[] key, byte[] value, Duration ttl) {
+        delegate.put(name, key, value, ttl);
+        recordPut(name, key, value);
+    }
+
+    @Override
+    public CompletableFuture<Void> store(String name, byte[] key, byte[] value, Duration ttl) {
+        return delegate.store(name, key, value, ttl).thenRun(() -> recordPut(name, key, value));
+    }
+
+    @Override
+    public byte[] putIfAbsent(String name, byte[] key, byte[] value, Duration ttl) {
+        byte[] existing = delegate.putIfAbsent(name, key, value, ttl);
+        if (existing == null) {
+            recordPut(name, key, value);
+        }
+        return existing;
+    }
+
+    @Override
+    public void remove(String name, byte[] key) {
+        delegate.remove(name, key);
+        if (tracked(name)) {
+            statistics.recordDeletes(name, 1);
+        }
+    }
+
+    @Override
+    public void clean(String name, byte[] pattern) {
+        delegate.clean(name, pattern);
+    }
+
+    @Override
+    public void clearStatistics(String name) {
+        delegate.clearStatistics(name);
+    }
+
+    @Override
+    public RedisCacheWriter withStatisticsCollector(CacheStatisticsCollector cacheStatisticsCollector) {
+        return new StatisticsRedisCacheWriter(delegate.withStatisticsCollector(cacheStatisticsCollector), statistics);
+    }
+
+    @Override
+    public CacheStatistics getCacheStatistics(String cacheName) {
+        return delegate.getCacheStatistics(cacheName);
+    }
+
+    private byte[] recordGet(String name, byte[] key, byte[] value) {
+        if (value != null) {
+            statistics.recordHit(name, id(name, key));
+        } else if (tracked(name)) {
+            statistics.recordMiss(name, id(name, key));
+        }
+        return value;
+    }
+
+    private void recordPut(String name, byte[] key, byte[] value) {
+        if (tracked(name)) {
+            statistics.recordPut(name, id(name, key), value.length);
+        }
+    }
+
+    private static boolean tracked(String name) {
+        return !CacheService.CACHE_NAME.equals(name);
+    }
+
+    private static String id(String name, byte[] key) {
+        String redisKey = new String(key, StandardCharsets.UTF_8);
+        String prefix = name + "::";
+        return redisKey.startsWith(prefix) ? redisKey.substring(prefix.length()) : redisKey;
+    }
+}
@@ -0,0 +1,16 @@
+-- Claims stream entries that other consumers of a group left unacknowledged.
+-- KEYS[1] stream
+-- ARGV[1] group, ARGV[2] claiming consumer, ARGV[3] minimum idle time in milliseconds,
+-- ARGV[4] cursor ('0-0' to start a scan), ARGV[5] maximum number of entries
+-- Returns {nextCursor, {{id, {field, value, ...}}, ...}}; entries trimmed from the stream come
+-- back without fields before Redis 7 and are acknowledged here.
+local reply = redis.call('XAUTOCLAIM', KEYS[1], ARGV[1], ARGV[2], ARGV[3], ARGV[4], 'COUNT', ARGV[5])
+local entries = {}
+for _, entry in ipairs(reply[2]) do
+    if entry[2] then
+        table.insert(entries, entry)
+    else
+        redis.call('XACK', KEYS[1], ARGV[1], entry[1])
+    end
+end
+return {reply[1], entries}
@@ -0,0 +1,71 @@
+-- Atomically stores a small value as a hash bucket field and bumps its version.
+-- KEYS[1] hash bucket, KEYS[2] value key, KEYS[3] metadata hash, KEYS[4] global version sequence
+-- ARGV[1] bucket field, ARGV[2] serialized value, ARGV[3] TTL in milliseconds (0 = none,
+-- requires field expiration otherwise), ARGV[4] expected version ('' = unconditional, '*' = any
+-- version of an existing entry),
+-- ARGV[5] current time in milliseconds, ARGV[6] serialized tags ('' = keep the current tags,
+-- ',' = remove all tags), ARGV[7] prefix of a serialized chunk manifest
+-- The field holds '<version>:<created>:<updated - created>:<tags>\n<value>', numbers in base 36.
+-- Returns the same reply as commit-value.lua; previousManifest is only set when a chunked entry
+-- moves from its own keys into the bucket.
+local function base36(n)
+    local digits = '0123456789abcdefghijklmnopqrstuvwxyz'
+    local s = ''
+    repeat
+        local d = n % 36
+        s = string.sub(digits, d + 1, d + 1) .. s
+        n = math.floor(n / 36)
+    until n == 0
+    return s
+end
+
+local now = tonumber(ARGV[5])
+local current, created, previousTags = 0, now, ''
+local previous = false
+local record = redis.call('HGET', KEYS[1], ARGV[1])
+if record and not string.match(record, '^%w+:%w+:%w+:[^\n]*\n') then
+    -- A field without a valid header reads as a miss and is overwritten
+    record = false
+end
+if record then
+    local v, c, _, t = string.match(record, '^(%w+):(%w+):(%w+):([^\n]*)\n')
+    current = tonumber(v, 36)
+    created = tonumber(c, 36)
+    previousTags = t
+else
+    current = tonumber(redis.call('HGET', KEYS[3], 'v') or '0')
+    created = tonumber(redis.call('HGET', KEYS[3], 'c') or now)
+    previousTags = redis.call('HGET', KEYS[3], 't') or ''
+    previous = redis.call('GET', KEYS[2])
+end
+
+if ARGV[4] ~= '' and not record and not previous then
+    return {-1}
+end
+if ARGV[4] ~= '' and ARGV[4] ~= '*' and tonumber(ARGV[4]) ~= current then
+    return {0, current}
+end
+
+local tags = previousTags
+if ARGV[6] == ',' then
+    tags = ''
+elseif ARGV[6] ~= '' then
+    tags = ARGV[6]
+end
+
+-- Versions come from a global sequence so they never repeat after a delete and re-create
+local version = redis.call('INCR', KEYS[4])
+local header = base36(version) .. ':' .. base36(created) .. ':' .. base36(math.max(now - created, 0)) .. ':' .. tags
+redis.call('HSET', KEYS[1], ARGV[1], header .. '\n' .. ARGV[2])
+local ttl = tonumber(ARGV[3])
+if ttl > 0 then
+    redis.call('HPEXPIRE', KEYS[1], ttl, 'FIELDS', 1, ARGV[1])
+end
+if not record then
+    redis.call('UNLINK', KEYS[2], KEYS[3])
+end
+
+if previous and string.sub(previous, 1, #ARGV[7]) == ARGV[7] then
+    return {1, version, previousTags, created, previous}
+end
+return {1, version, previousTags, created}
@@ -0,0 +1,84 @@
+-- Atomically replaces a cache value and bumps its version.
+-- KEYS[1] value key, KEYS[2] metadata hash, KEYS[3] global version sequence, KEYS[4] hash bucket,
+-- KEYS[5] chunk hash
+-- ARGV[1] serialized value, ARGV[2] TTL in milliseconds (0 = none),
+-- ARGV[3] expected version ('' = unconditional, '*' = any version of an existing entry),
+-- ARGV[4] current time in milliseconds,
+-- ARGV[5] serialized tags ('' = keep the current tags, ',' = remove all tags),
+-- ARGV[6] bucket field ('' = hash buckets disabled), ARGV[7] prefix of a serialized chunk manifest,
+-- ARGV[8] chunk generation of the new value ('' = not chunked), ARGV[9] orphan grace in milliseconds
+-- Returns {1, newVersion, previousTags, createdAt, previousManifest}, {0, currentVersion} when the
+-- expected version does not match, or {-1} when an expected version is given and the entry does
+-- not exist. previousTags is '' when the entry had no tags, and the previous value is only
+-- returned when it is a chunk manifest whose chunks must be released.
+local current = tonumber(redis.call('HGET', KEYS[2], 'v') or '0')
+local previousTags = redis.call('HGET', KEYS[2], 't') or ''
+local created = ARGV[4]
+
+-- An entry that outgrew its bucket moves to its own keys together with its metadata
+local record = ARGV[6] ~= '' and redis.call('HGET', KEYS[4], ARGV[6])
+if record then
+    local v, c, _, t = string.match(record, '^(%w+):(%w+):(%w+):([^\n]*)\n')
+    current = tonumber(v, 36)
+    created = tostring(tonumber(c, 36))
+    previousTags = t
+end
+
+-- Conditional updates never re-create an entry that was deleted or expired
+if ARGV[3] ~= '' and not record and redis.call('EXISTS', KEYS[1]) == 0 then
+    return {-1}
+end
+if ARGV[3] ~= '' and ARGV[3] ~= '*' and tonumber(ARGV[3]) ~= current then
+    return {0, current}
+end
+
+local ttl = tonumber(ARGV[2])
+local previous = redis.call('GET', KEYS[1])
+if ttl > 0 then
+    redis.call('SET', KEYS[1], ARGV[1], 'PX', ttl)
+else
+    redis.call('SET', KEYS[1], ARGV[1])
+end
+
+-- Versions come from a global sequence so they never repeat after a delete and re-create
+local version = redis.call('INCR', KEYS[3])
+redis.call('HSETNX', KEYS[2], 'c', created)
+local createdAt = tonumber(redis.call('HGET', KEYS[2], 'c'))
+redis.call('HSET', KEYS[2], 'v', version, 'u', ARGV[4])
+if ARGV[5] == ',' then
+    redis.call('HDEL', KEYS[2], 't')
+elseif ARGV[5] ~= '' then
+    redis.call('HSET', KEYS[2], 't', ARGV[5])
+elseif record and previousTags ~= '' then
+    redis.call('HSET', KEYS[2], 't', previousTags)
+end
+-- Chunks of generations that never committed, because a writer died mid-write, are released
+-- once they are older than the grace period; younger ones may belong to a write in progress.
+-- Generations are named <write time in base 36>-<random>; older names are left alone.
+local cutoff = tonumber(ARGV[4]) - tonumber(ARGV[9])
+local stale = {}
+for _, field in ipairs(redis.call('HKEYS', KEYS[5])) do
+    local generation, written = string.match(field, '^((%w+)%-%w+):')
+    if generation and generation ~= ARGV[8] and tonumber(written, 36) < cutoff then
+        stale[#stale + 1] = field
+    end
+end
+for i = 1, #stale, 1000 do
+    redis.call('HDEL', KEYS[5], unpack(stale, i, math.min(i + 999, #stale)))
+end
+-- Metadata and chunks always expire together with the value, including when a TTL is dropped
+for _, key in ipairs({KEYS[2], KEYS[5]}) do
+    if ttl > 0 then
+        redis.call('PEXPIRE', key, ttl)
+    else
+        redis.call('PERSIST', key)
+    end
+end
+if record then
+    redis.call('HDEL', KEYS[4], ARGV[6])
+end
+
+if previous and string.sub(previous, 1, #ARGV[7]) == ARGV[7] then
+    return {1, version, previousTags, createdAt, previous}
+end
+return {1, version, previousTags, createdAt}
@@ -0,0 +1,15 @@
+-- Removes a cache value together with its metadata and chunks.
+-- KEYS[1] value key, KEYS[2] metadata hash, KEYS[3] chunk hash, KEYS[4] hash bucket
+-- ARGV[1] bucket field ('' = hash buckets disabled)
+-- Returns {removedValueKeys, tags} where tags is '' when the entry had no tags.
+local tags = redis.call('HGET', KEYS[2], 't') or ''
+local removed = redis.call('UNLINK', KEYS[1])
+redis.call('UNLINK', KEYS[2], KEYS[3])
+if ARGV[1] ~= '' then
+    local record = redis.call('HGET', KEYS[4], ARGV[1])
+    if record then
+        tags = string.match(record, '^%w+:%w+:%w+:([^\n]*)\n')
+        removed = removed + redis.call('HDEL', KEYS[4], ARGV[1])
+    end
+end
+return {removed, tags}
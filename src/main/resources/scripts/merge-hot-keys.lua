@@ -0,0 +1,22 @@
+-- Decays the hot key scores by the time passed since the last merge, then adds new counts.
+-- KEYS[1] sorted set of scores, KEYS[2] time of the last decay in milliseconds
+-- ARGV[1] current time in milliseconds, ARGV[2] half-life in milliseconds, ARGV[3] number of
+-- entries kept, ARGV[4..] pairs of id and access count
+-- Scores halve every half-life, so they approximate an exponentially weighted access rate and
+-- ids that are no longer read drop out of the top entries. The decay is based on the stored
+-- time, so instances merging concurrently do not decay the scores more than once.
+local now = tonumber(ARGV[1])
+local halfLife = tonumber(ARGV[2])
+local last = tonumber(redis.call('GET', KEYS[2]))
+if last and now > last and halfLife > 0 then
+    local factor = math.pow(0.5, (now - last) / halfLife)
+    redis.call('ZUNIONSTORE', KEYS[1], 1, KEYS[1], 'WEIGHTS', tostring(factor))
+end
+if not last or now > last then
+    redis.call('SET', KEYS[2], now)
+end
+for i = 4, #ARGV, 2 do
+    redis.call('ZINCRBY', KEYS[1], ARGV[i + 1], ARGV[i])
+end
+redis.call('ZREMRANGEBYRANK', KEYS[1], 0, -(tonumber(ARGV[3]) + 1))
+return redis.call('ZCARD', KEYS[1])
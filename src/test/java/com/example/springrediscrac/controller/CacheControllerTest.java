@@ -0,0 +1,121 @@
+package com.example.springrediscrac.controller;
+
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "app.warmup.enabled=false")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class CacheControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    private final String key = "test:etag:" + UUID.randomUUID();
+
+    @AfterEach
+    void cleanUp() throws Exception {
+        mockMvc.perform(delete("/api/cache/{key}", key));
+    }
+
+    @Test
+    void ttlWriteReplacesCachedValueAndEtag() throws Exception {
+        mockMvc.perform(post("/api/cache").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"key\":\"" + key + "\",\"value\":\"first\"}"))
+                .andExpect(status().isCreated());
+        // Populates the region copy
+        String firstEtag = mockMvc.perform(get("/api/cache/{key}", key))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(post("/api/cache/ttl").param("key", key).param("value", "second").param("ttl", "60"))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(get("/api/cache/{key}", key).header(HttpHeaders.IF_NONE_MATCH, firstEtag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, not(firstEtag)))
+                .andExpect(jsonPath("$.value").value("second"));
+    }
+
+    @Test
+    void currentEtagIsAnsweredWithNotModified() throws Exception {
+        mockMvc.perform(post("/api/cache/ttl").param("key", key).param("value", "value").param("ttl", "60"))
+                .andExpect(status().isCreated());
+        String etag = mockMvc.perform(get("/api/cache/{key}", key))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.value").value("value"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/api/cache/{key}", key).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void readReturnsTimestampsFromMetadata() throws Exception {
+        mockMvc.perform(post("/api/cache/ttl").param("key", key).param("value", "first").param("ttl", "60"))
+                .andExpect(status().isCreated());
+        String created = JsonPath.read(mockMvc.perform(get("/api/cache/{key}", key))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.updated_at").exists())
+                .andReturn().getResponse().getContentAsString(), "$.created_at");
+
+        Thread.sleep(5);
+        mockMvc.perform(put("/api/cache/{key}", key).contentType(MediaType.APPLICATION_JSON).content("{\"value\":\"second\"}"))
+                .andExpect(status().isOk());
+
+        String body = mockMvc.perform(get("/api/cache/{key}", key))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created_at").value(created))
+                .andReturn().getResponse().getContentAsString();
+        Instant updated = Instant.parse(JsonPath.read(body, "$.updated_at"));
+        assertTrue(updated.isAfter(Instant.parse(created)));
+    }
+
+    @Test
+    void updateOfMissingEntryIsNotFoundAndDoesNotCreateIt() throws Exception {
+        mockMvc.perform(put("/api/cache/{key}", key).contentType(MediaType.APPLICATION_JSON).content("{\"value\":\"value\"}"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(put("/api/cache/{key}", key).contentType(MediaType.APPLICATION_JSON).content("{\"value\":\"value\"}")
+                        .header(HttpHeaders.IF_MATCH, "\"1\""))
+                .andExpect(status().isNotFound());
+
+        mockMvc.perform(get("/api/cache/{key}", key))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void updateWithStaleEtagIsRejected() throws Exception {
+        mockMvc.perform(post("/api/cache/ttl").param("key", key).param("value", "first").param("ttl", "60"))
+                .andExpect(status().isCreated());
+        String etag = mockMvc.perform(get("/api/cache/{key}", key))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(put("/api/cache/{key}", key).contentType(MediaType.APPLICATION_JSON).content("{\"value\":\"second\"}")
+                        .header(HttpHeaders.IF_MATCH, etag))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(put("/api/cache/{key}", key).contentType(MediaType.APPLICATION_JSON).content("{\"value\":\"third\"}")
+                        .header(HttpHeaders.IF_MATCH, etag))
+                .andExpect(status().isPreconditionFailed());
+    }
+}
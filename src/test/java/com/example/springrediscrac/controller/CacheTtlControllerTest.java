@@ -0,0 +1,116 @@
+package com.example.springrediscrac.controller;
+
+import com.example.springrediscrac.model.CacheItem;
+import com.example.springrediscrac.service.CacheService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "app.warmup.enabled=false")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class CacheTtlControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CacheService cacheService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final String prefix = "test:ttl:" + UUID.randomUUID() + ":";
+    private final String tag = "tenant:" + UUID.randomUUID();
+
+    @AfterEach
+    void cleanUp() {
+        for (String key : List.of("a", "b", "c")) {
+            cacheService.deleteValue(prefix + key);
+        }
+    }
+
+    @Test
+    void patternUpdateSetsTtlOfMatchingEntriesOnly() throws Exception {
+        cacheService.setValue(new CacheItem(prefix + "a", "first"));
+        cacheService.setValueWithTTL(prefix + "b", "second", 10, TimeUnit.MINUTES);
+        cacheService.setValue(new CacheItem(prefix + "c", "other"));
+
+        JsonNode job = runJob(mockMvc.perform(post("/api/cache/ttl/bulk")
+                        .param("pattern", prefix + "[ab]").param("ttl", "60000").param("jitter", "0"))
+                .andExpect(status().isAccepted())
+                .andExpect(header().exists(HttpHeaders.LOCATION))
+                .andReturn());
+
+        assertEquals(2, job.get("scanned").asLong());
+        assertEquals(2, job.get("updated").asLong());
+        for (String key : List.of("a", "b")) {
+            long ttl = cacheService.getExpiration(prefix + key);
+            assertTrue(ttl > 50_000 && ttl <= 60_000, key + " expires in " + ttl);
+        }
+        assertEquals(-1L, cacheService.getExpiration(prefix + "c"));
+    }
+
+    @Test
+    void tagUpdateRemovesTtl() throws Exception {
+        cacheService.setValueWithTTL(prefix + "a", "first", 10, TimeUnit.MINUTES, Set.of(tag));
+        cacheService.setValueWithTTL(prefix + "b", "second", 10, TimeUnit.MINUTES);
+
+        JsonNode job = runJob(mockMvc.perform(post("/api/cache/ttl/bulk").param("tag", tag).param("persist", "true"))
+                .andExpect(status().isAccepted())
+                .andReturn());
+
+        assertEquals(1, job.get("updated").asLong());
+        assertEquals(-1L, cacheService.getExpiration(prefix + "a"));
+        assertTrue(cacheService.getExpiration(prefix + "b") > 0);
+    }
+
+    @Test
+    void invalidRequestsAreRejected() throws Exception {
+        mockMvc.perform(post("/api/cache/ttl/bulk").param("pattern", prefix + "*").param("tag", tag).param("ttl", "1000"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/api/cache/ttl/bulk").param("pattern", prefix + "*").param("ttl", "1000").param("persist", "true"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/cache/ttl/bulk/jobs/{id}", UUID.randomUUID()))
+                .andExpect(status().isNotFound());
+    }
+
+    private JsonNode runJob(MvcResult started) throws Exception {
+        String location = started.getResponse().getHeader(HttpHeaders.LOCATION);
+        for (int i = 0; i < 100; i++) {
+            JsonNode job = objectMapper.readTree(mockMvc.perform(get(location))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString());
+            String state = job.get("state").asText();
+            if (state.equals("COMPLETED")) {
+                return job;
+            }
+            if (state.equals("FAILED")) {
+                fail("Job failed: " + job);
+            }
+            Thread.sleep(50);
+        }
+        throw new AssertionError("Job did not finish: " + location);
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.springrediscrac.crac;
+
+import com.example.springrediscrac.service.RedisCircuitBreaker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest(properties = {
+        "app.crac.drain-timeout=500ms",
+        "app.crac.redis-restore-attempts=3",
+        "app.crac.redis-restore-backoff=10ms",
+        "app.crac.redis-restore-max-backoff=20ms",
+        "app.warmup.enabled=false"
+})
+@ActiveProfiles("test")
+@DirtiesContext
+class CheckpointOrchestratorTest {
+
+    @Autowired
+    private CheckpointOrchestrator checkpointOrchestrator;
+
+    @Autowired
+    private InFlightRequestFilter inFlightRequestFilter;
+
+    @Autowired
+    private ApplicationAvailability applicationAvailability;
+
+    @Autowired
+    private RedisCircuitBreaker redisCircuitBreaker;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @MockitoBean
+    private RedisCracResource redisCracResource;
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void releaseRequests() {
+        release.countDown();
+    }
+
+    @Test
+    void drainWaitsForInFlightRequests() throws Exception {
+        when(redisCracResource.restore(any())).thenReturn(true);
+        Thread request = startRequest("/api/cache/key");
+        awaitInFlight(1);
+        Thread finisher = new Thread(() -> {
+            sleep(150);
+            release.countDown();
+        });
+        finisher.start();
+
+        checkpointOrchestrator.beforeCheckpoint(null);
+
+        assertEquals(0, inFlightRequestFilter.inFlight());
+        assertEquals(ReadinessState.REFUSING_TRAFFIC, applicationAvailability.getReadinessState());
+        assertEquals("CHECKPOINTING", checkpointOrchestrator.status().get("phase"));
+        assertNull(checkpointOrchestrator.status().get("undrained_requests"));
+        assertTrue((Long) checkpointOrchestrator.status().get("drain_ms") >= 100);
+        verify(redisCracResource).prepareForCheckpoint();
+        request.join();
+
+        restoreAndAwait();
+        assertEquals("COMPLETED", checkpointOrchestrator.status().get("phase"));
+        assertEquals(ReadinessState.ACCEPTING_TRAFFIC, applicationAvailability.getReadinessState());
+    }
+
+    @Test
+    void drainGivesUpAtDrainTimeout() throws Exception {
+        when(redisCracResource.restore(any())).thenReturn(true);
+        startRequest("/api/cache/stuck");
+        awaitInFlight(1);
+        long drainCount = phaseTimer("drain").count();
+
+        long start = System.nanoTime();
+        checkpointOrchestrator.beforeCheckpoint(null);
+        long elapsed = System.nanoTime() - start;
+
+        assertTrue(elapsed >= TimeUnit.MILLISECONDS.toNanos(500), "returned before the drain timeout");
+        assertTrue(elapsed < TimeUnit.SECONDS.toNanos(5), "drain did not stop at the timeout");
+        assertEquals(1, checkpointOrchestrator.status().get("undrained_requests"));
+        assertEquals(drainCount + 1, phaseTimer("drain").count());
+
+        release.countDown();
+        restoreAndAwait();
+    }
+
+    @Test
+    void restoreRetriesRedisAndRecordsFirstRequest() throws Exception {
+        when(redisCracResource.restore(any())).thenReturn(false, false, true);
+        long restoreCount = phaseTimer("restore").count();
+        long firstRequestCount = phaseTimer("first_request").count();
+
+        checkpointOrchestrator.beforeCheckpoint(null);
+        restoreAndAwait();
+
+        assertEquals("COMPLETED", checkpointOrchestrator.status().get("phase"));
+        assertEquals(3, checkpointOrchestrator.status().get("redis_attempts"));
+        assertEquals(restoreCount + 1, phaseTimer("restore").count());
+        assertEquals(ReadinessState.ACCEPTING_TRAFFIC, applicationAvailability.getReadinessState());
+
+        // Probes do not count as the first request served after the restore
+        release.countDown();
+        startRequest("/actuator/health/readiness").join();
+        assertEquals(firstRequestCount, phaseTimer("first_request").count());
+        startRequest("/api/cache/key").join();
+        assertEquals(firstRequestCount + 1, phaseTimer("first_request").count());
+    }
+
+    @Test
+    void restoreFallsBackToOpenBreakerWhenRedisStaysDown() throws Exception {
+        when(redisCracResource.restore(any())).thenReturn(false);
+
+        checkpointOrchestrator.beforeCheckpoint(null);
+        restoreAndAwait();
+
+        verify(redisCracResource, times(3)).restore(any());
+        assertEquals("COMPLETED_DEGRADED", checkpointOrchestrator.status().get("phase"));
+        assertEquals(RedisCircuitBreaker.State.OPEN, redisCircuitBreaker.state());
+        assertEquals(ReadinessState.ACCEPTING_TRAFFIC, applicationAvailability.getReadinessState());
+    }
+
+    private void restoreAndAwait() throws InterruptedException {
+        checkpointOrchestrator.afterRestore(null);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while ((Boolean) checkpointOrchestrator.status().get("in_progress") && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertFalse((Boolean) checkpointOrchestrator.status().get("in_progress"), "restore did not complete");
+    }
+
+    // Runs a request through the filter that is held until the test releases it
+    private Thread startRequest(String uri) {
+        Thread thread = new Thread(() -> {
+            MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+            try {
+                inFlightRequestFilter.doFilter(request, new MockHttpServletResponse(),
+                        (req, res) -> awaitRelease());
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    private void awaitRelease() {
+        try {
+            release.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void awaitInFlight(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (inFlightRequestFilter.inFlight() < count && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(count, inFlightRequestFilter.inFlight());
+    }
+
+    private Timer phaseTimer(String phase) {
+        return Timer.builder("crac.phase.duration").tag("phase", phase).register(meterRegistry);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.springrediscrac.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.core.spi.FilterReply;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SamplingTurboFilterTest {
+
+    private final LoggerContext context = new LoggerContext();
+
+    private SamplingTurboFilter filter(int ratePerSecond) {
+        SamplingTurboFilter filter = new SamplingTurboFilter();
+        filter.addSampledLogger("com.example.requests");
+        filter.setRatePerSecond(ratePerSecond);
+        return filter;
+    }
+
+    private static FilterReply decide(SamplingTurboFilter filter, Logger logger, Level level) {
+        return filter.decide(null, logger, level, "request {}", new Object[] {1}, null);
+    }
+
+    @Test
+    void deniesEventsBeyondRate() {
+        SamplingTurboFilter filter = filter(2);
+        Logger logger = context.getLogger("com.example.requests.Controller");
+        logger.setLevel(Level.INFO);
+
+        assertEquals(FilterReply.NEUTRAL, decide(filter, logger, Level.INFO));
+        assertEquals(FilterReply.NEUTRAL, decide(filter, logger, Level.INFO));
+        assertEquals(FilterReply.DENY, decide(filter, logger, Level.INFO));
+        assertEquals(FilterReply.NEUTRAL, decide(filter, logger, Level.WARN));
+    }
+
+    @Test
+    void disabledLevelsDoNotUseUpBudget() {
+        SamplingTurboFilter filter = filter(1);
+        Logger logger = context.getLogger("com.example.requests.Controller");
+        logger.setLevel(Level.INFO);
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(FilterReply.NEUTRAL, decide(filter, logger, Level.DEBUG));
+        }
+        assertEquals(FilterReply.NEUTRAL, decide(filter, logger, Level.INFO));
+    }
+
+    @Test
+    void otherLoggersAreNotSampled() {
+        SamplingTurboFilter filter = filter(0);
+        Logger logger = context.getLogger("com.example.requestsOther");
+        logger.setLevel(Level.INFO);
+
+        assertEquals(FilterReply.NEUTRAL, decide(filter, logger, Level.INFO));
+    }
+}
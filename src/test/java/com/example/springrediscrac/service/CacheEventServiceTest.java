@@ -0,0 +1,223 @@
+package com.example.springrediscrac.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.stream.Consumer;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.ReadOffset;
+import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "app.cache.events.stream-key=test:events:cache",
+        "app.cache.events.poll-interval=50ms",
+        "app.cache.events.claim-min-idle=500ms",
+        "app.cache.events.claim-interval=100ms",
+        "app.warmup.enabled=false"
+})
+@ActiveProfiles("test")
+class CacheEventServiceTest {
+
+    private static final String STREAM_KEY = "test:events:cache";
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private CacheEventService cacheEventService;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+    private final List<EventStream> streams = new ArrayList<>();
+    private final String prefix = "test:events:" + UUID.randomUUID() + ":";
+
+    @AfterEach
+    void cleanUp() {
+        streams.forEach(EventStream::close);
+        stringRedisTemplate.delete(STREAM_KEY);
+    }
+
+    @Test
+    void resumesAfterLastEventId() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            cacheEventService.publish("SET", prefix + i);
+        }
+        List<MapRecord<String, Object, Object>> published = stringRedisTemplate.opsForStream().range(STREAM_KEY, Range.unbounded());
+        String firstId = published.get(0).getId().getValue();
+
+        EventStream stream = open("/api/events/cache", Map.of("Last-Event-ID", firstId));
+
+        assertEquals(prefix + 1, stream.next().get("key"));
+        Map<String, String> last = stream.next();
+        assertEquals(prefix + 2, last.get("key"));
+        assertEquals(published.get(2).getId().getValue(), last.get("id"));
+    }
+
+    @Test
+    void rejectsMalformedOffset() throws Exception {
+        HttpResponse<Void> response = httpClient.send(request("/api/events/cache?from=latest", Map.of()),
+                HttpResponse.BodyHandlers.discarding());
+
+        assertEquals(400, response.statusCode());
+    }
+
+    @Test
+    void groupConsumersShareEvents() throws Exception {
+        EventStream first = open("/api/events/cache?group=indexer&consumer=a", Map.of());
+        EventStream second = open("/api/events/cache?group=indexer&consumer=b", Map.of());
+        awaitConsumers("indexer", 2);
+        Set<String> expected = new HashSet<>();
+        for (int i = 0; i < 20; i++) {
+            cacheEventService.publish("SET", prefix + i);
+            expected.add(prefix + i);
+        }
+
+        List<String> received = new ArrayList<>();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (received.size() < expected.size() && System.nanoTime() < deadline) {
+            for (EventStream stream : List.of(first, second)) {
+                Map<String, String> event = stream.poll(20);
+                if (event != null) {
+                    received.add(event.get("key"));
+                }
+            }
+        }
+
+        // Every event goes to exactly one consumer of the group
+        assertEquals(expected.size(), received.size());
+        assertEquals(expected, new HashSet<>(received));
+        assertEquals(0L, stringRedisTemplate.opsForStream().pending(STREAM_KEY, "indexer").getTotalPendingMessages());
+    }
+
+    @Test
+    void claimsEventsLeftUnacknowledgedAfterMinIdle() throws Exception {
+        stringRedisTemplate.opsForStream().createGroup(STREAM_KEY, ReadOffset.latest(), "indexer");
+        cacheEventService.publish("SET", prefix + "abandoned");
+        // A consumer that reads and disappears without acknowledging
+        long read = System.nanoTime();
+        stringRedisTemplate.opsForStream().read(Consumer.from("indexer", "gone"),
+                StreamOffset.create(STREAM_KEY, ReadOffset.lastConsumed()));
+
+        EventStream stream = open("/api/events/cache?group=indexer&consumer=survivor", Map.of());
+        Map<String, String> claimed = stream.next();
+
+        assertEquals(prefix + "abandoned", claimed.get("key"));
+        assertTrue(System.nanoTime() - read >= TimeUnit.MILLISECONDS.toNanos(450),
+                "claimed before the minimum idle time");
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (stringRedisTemplate.opsForStream().pending(STREAM_KEY, "indexer").getTotalPendingMessages() > 0
+                && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(0L, stringRedisTemplate.opsForStream().pending(STREAM_KEY, "indexer").getTotalPendingMessages());
+    }
+
+    // The response headers are only flushed with the first event, so the request is not awaited
+    private EventStream open(String path, Map<String, String> headers) {
+        EventStream stream = new EventStream(httpClient.sendAsync(request(path, headers), HttpResponse.BodyHandlers.ofLines()));
+        streams.add(stream);
+        return stream;
+    }
+
+    private void awaitConsumers(String group, int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            try {
+                if (stringRedisTemplate.opsForStream().consumers(STREAM_KEY, group).size() >= count) {
+                    return;
+                }
+            } catch (DataAccessException e) {
+                // The group is not created yet
+            }
+            Thread.sleep(20);
+        }
+        throw new AssertionError("consumers of group " + group + " did not register");
+    }
+
+    private HttpRequest request(String path, Map<String, String> headers) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .header("Accept", "text/event-stream");
+        headers.forEach(builder::header);
+        return builder.build();
+    }
+
+    /**
+     * Reads the data lines of an SSE response on a background thread.
+     */
+    private class EventStream {
+
+        private final CompletableFuture<HttpResponse<Stream<String>>> response;
+        private final BlockingQueue<Map<String, String>> events = new LinkedBlockingQueue<>();
+
+        EventStream(CompletableFuture<HttpResponse<Stream<String>>> response) {
+            this.response = response;
+            Thread reader = new Thread(() -> {
+                try (Stream<String> lines = response.join().body()) {
+                    lines.filter(line -> line.startsWith("data:")).forEach(line -> events.add(parse(line.substring(5))));
+                } catch (RuntimeException e) {
+                    // Closed by the test
+                }
+            }, "sse-test-reader");
+            reader.setDaemon(true);
+            reader.start();
+        }
+
+        Map<String, String> next() throws InterruptedException {
+            Map<String, String> event = poll(5000);
+            assertNotNull(event, "no event received");
+            return event;
+        }
+
+        Map<String, String> poll(long timeoutMillis) throws InterruptedException {
+            return events.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+
+        void close() {
+            if (!response.cancel(true) && !response.isCompletedExceptionally()) {
+                response.join().body().close();
+            }
+        }
+
+        private Map<String, String> parse(String json) {
+            try {
+                return objectMapper.readValue(json, new TypeReference<>() { });
+            } catch (IOException e) {
+                throw new IllegalStateException("Malformed event: " + json, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.springrediscrac.service;
+
+import com.example.springrediscrac.crac.RedisCracResource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "app.warmup.time-budget=1500ms",
+        "app.warmup.parallelism=4",
+        "app.warmup.half-life=24h"
+})
+@ActiveProfiles("test")
+class CacheWarmupServiceTest {
+
+    @Autowired
+    private CacheWarmupService cacheWarmupService;
+
+    @Autowired
+    private CatalogService catalogService;
+
+    @Autowired
+    private RedisCracResource redisCracResource;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    private final String prefix = "test-warmup-" + UUID.randomUUID() + "-";
+    private final List<String> ids = new ArrayList<>();
+
+    @BeforeEach
+    void resetSnapshot() {
+        stringRedisTemplate.delete(List.of(CacheWarmupService.HOT_KEYS_KEY, CacheWarmupService.DECAYED_AT_KEY));
+    }
+
+    @AfterEach
+    void cleanUp() {
+        resetSnapshot();
+        ids.forEach(catalogService::evictCache);
+    }
+
+    @Test
+    void decayedScoresGiveWayToCurrentHotIds() {
+        String old = id("old");
+        String current = id("current");
+        record(old, 8);
+        cacheWarmupService.persistHotKeys();
+        // Two half-lives later
+        stringRedisTemplate.opsForValue().set(CacheWarmupService.DECAYED_AT_KEY,
+                Long.toString(System.currentTimeMillis() - Duration.ofHours(48).toMillis()));
+        record(current, 3);
+        cacheWarmupService.persistHotKeys();
+
+        assertEquals(List.of(current, old),
+                new ArrayList<>(stringRedisTemplate.opsForZSet().reverseRange(CacheWarmupService.HOT_KEYS_KEY, 0, -1)));
+        assertEquals(2.0, stringRedisTemplate.opsForZSet().score(CacheWarmupService.HOT_KEYS_KEY, old), 0.01);
+    }
+
+    @Test
+    void warmUpLoadsOnlyMissingIds() {
+        String cached = id("cached");
+        String missing = id("missing");
+        hot(cached, 2);
+        hot(missing, 1);
+        catalogService.updateCache(cached, "cached data");
+
+        Map<String, Object> result = cacheWarmupService.warmUp("test");
+
+        assertEquals("COMPLETED", result.get("status"));
+        assertEquals(1, result.get("already_cached"));
+        assertEquals(1, result.get("loaded"));
+        assertEquals("cached data", catalogService.getCachedData(cached));
+        assertEquals(Boolean.TRUE, stringRedisTemplate.hasKey(CatalogService.CACHE_NAME + "::" + missing));
+    }
+
+    @Test
+    void warmUpStopsAtTimeBudget() throws InterruptedException {
+        // Loads take a second each, so eight of them need two rounds of the pool of four
+        for (int i = 0; i < 8; i++) {
+            hot(id("slow-" + i), 1);
+        }
+
+        Map<String, Object> result = cacheWarmupService.warmUp("test");
+
+        assertEquals("TIME_BUDGET_EXCEEDED", result.get("status"));
+        assertTrue((Integer) result.get("loaded") < 8);
+        assertTrue((Long) result.get("elapsed_ms") < 2000);
+        // Let the loads that already started finish before the cleanup
+        Thread.sleep(1000);
+    }
+
+    @Test
+    void restoreWarmsUpCatalog() {
+        String id = id("restored");
+        hot(id, 1);
+
+        assertTrue(redisCracResource.restore(Duration.ofSeconds(5)));
+        assertEquals(Boolean.TRUE, stringRedisTemplate.hasKey(CatalogService.CACHE_NAME + "::" + id));
+    }
+
+    private String id(String name) {
+        String id = prefix + name;
+        ids.add(id);
+        return id;
+    }
+
+    private void record(String id, int times) {
+        for (int i = 0; i < times; i++) {
+            cacheWarmupService.recordAccess(id);
+        }
+    }
+
+    private void hot(String id, double score) {
+        stringRedisTemplate.opsForZSet().add(CacheWarmupService.HOT_KEYS_KEY, id, score);
+    }
+}
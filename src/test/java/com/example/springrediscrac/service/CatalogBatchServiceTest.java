@@ -0,0 +1,148 @@
+package com.example.springrediscrac.service;
+
+import com.example.springrediscrac.service.CatalogBatchService.Status;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest(properties = {
+        "app.catalog.batch.parallelism=2",
+        "app.catalog.batch.queue-size=1",
+        "app.warmup.enabled=false"
+})
+@ActiveProfiles("test")
+class CatalogBatchServiceTest {
+
+    @Autowired
+    private CatalogBatchService catalogBatchService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @MockitoBean
+    private CatalogService catalogService;
+
+    private final String prefix = "test:batch:" + UUID.randomUUID() + ":";
+    private final String slowPrefix = prefix + "slow:";
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final List<String> ids = new ArrayList<>();
+    private Cache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = cacheManager.getCache(CatalogService.CACHE_NAME);
+        // Ids under the slow prefix are held until the test releases them
+        when(catalogService.loadData(anyString())).thenAnswer(invocation -> {
+            String id = invocation.getArgument(0);
+            if (id.startsWith(slowPrefix)) {
+                release.await(10, TimeUnit.SECONDS);
+            }
+            return "data-" + id;
+        });
+    }
+
+    @AfterEach
+    void cleanUp() {
+        release.countDown();
+        ids.forEach(cache::evict);
+    }
+
+    @Test
+    void mixedBatchReportsHitsLoadsAndTimeouts() throws Exception {
+        String hit = id(prefix + "hit");
+        String miss = id(prefix + "miss");
+        String slow = id(slowPrefix + "1");
+        cache.put(hit, "cached");
+
+        Map<String, CatalogBatchService.Result> results =
+                catalogBatchService.getAll(List.of(hit, miss, slow, hit), Duration.ofMillis(300));
+
+        assertEquals(List.of(hit, miss, slow), new ArrayList<>(results.keySet()));
+        assertEquals(Status.HIT, results.get(hit).getStatus());
+        assertEquals("cached", results.get(hit).getValue());
+        assertEquals(Status.LOADED, results.get(miss).getStatus());
+        assertEquals("data-" + miss, results.get(miss).getValue());
+        assertEquals(Status.TIMEOUT, results.get(slow).getStatus());
+        assertNull(results.get(slow).getValue());
+
+        // Loaded misses are written back in the format single reads use
+        assertEquals("data-" + miss, cache.get(miss, String.class));
+        assertNull(cache.get(slow));
+        verify(catalogService, times(0)).loadData(hit);
+
+        // A load that outlives the deadline is cached once it finishes
+        release.countDown();
+        assertEquals("data-" + slow, awaitCached(slow));
+    }
+
+    @Test
+    void requestsShareRunningLoadsAndSaturationIsRejected() throws Exception {
+        String first = id(slowPrefix + "1");
+        String second = id(slowPrefix + "2");
+        String queued = id(slowPrefix + "3");
+        String rejected = id(slowPrefix + "4");
+
+        // Two loads take the pool's threads, one waits in its queue and the last one is rejected.
+        // Idle threads pick up work from the queue, so each load is started before the next.
+        Map<String, CatalogBatchService.Result> running =
+                catalogBatchService.getAll(List.of(first), Duration.ofMillis(100));
+        verify(catalogService, timeout(2000)).loadData(first);
+        running.putAll(catalogBatchService.getAll(List.of(second), Duration.ofMillis(100)));
+        verify(catalogService, timeout(2000)).loadData(second);
+        Map<String, CatalogBatchService.Result> results =
+                catalogBatchService.getAll(List.of(queued, rejected), Duration.ofMillis(100));
+        Map<String, CatalogBatchService.Result> shared =
+                catalogBatchService.getAll(List.of(first), Duration.ofMillis(100));
+
+        assertEquals(Status.TIMEOUT, running.get(first).getStatus());
+        assertEquals(Status.TIMEOUT, running.get(second).getStatus());
+        assertEquals(Status.TIMEOUT, results.get(queued).getStatus());
+        assertEquals(Status.REJECTED, results.get(rejected).getStatus());
+        assertEquals(Status.TIMEOUT, shared.get(first).getStatus());
+
+        release.countDown();
+        assertEquals("data-" + first, awaitCached(first));
+        assertEquals("data-" + queued, awaitCached(queued));
+        verify(catalogService, times(1)).loadData(first);
+        verify(catalogService, times(0)).loadData(rejected);
+    }
+
+    private String id(String id) {
+        ids.add(id);
+        return id;
+    }
+
+    private String awaitCached(String id) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            String value = cache.get(id, String.class);
+            if (value != null) {
+                return value;
+            }
+            Thread.sleep(20);
+        }
+        throw new AssertionError(id + " was not cached");
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.springrediscrac.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "app.cache.large-value.threshold=1024",
+        "app.cache.large-value.chunk-size=512",
+        "app.warmup.enabled=false"
+})
+@ActiveProfiles("test")
+class DegradedModeServiceTest {
+
+    @Autowired
+    private DegradedModeService degradedModeService;
+
+    private final String key = "test:degraded:" + UUID.randomUUID();
+
+    @Test
+    void keepsValuesWithinThreshold() {
+        degradedModeService.remember(CacheService.CACHE_NAME, key, "small", 3L);
+
+        DegradedModeService.Snapshot entry = degradedModeService.lookup(CacheService.CACHE_NAME, key);
+        assertEquals("small", entry.getValue());
+        assertEquals(3L, entry.getVersion());
+    }
+
+    @Test
+    void largeValueReplacesOlderCopyWithoutBeingKept() {
+        degradedModeService.remember(CacheService.CACHE_NAME, key, "small", 1L);
+        degradedModeService.remember(CacheService.CACHE_NAME, key, "x".repeat(2000), 2L);
+
+        assertNull(degradedModeService.lookup(CacheService.CACHE_NAME, key));
+    }
+
+    @Test
+    void forgetAllDropsOnlyTheRegion() {
+        degradedModeService.remember(CacheService.CACHE_NAME, key, "cached", 1L);
+        degradedModeService.remember(CatalogService.CACHE_NAME, key, "catalog", null);
+
+        degradedModeService.forgetAll(CacheService.CACHE_NAME);
+
+        assertNull(degradedModeService.lookup(CacheService.CACHE_NAME, key));
+        assertEquals("catalog", degradedModeService.lookup(CatalogService.CACHE_NAME, key).getValue());
+        degradedModeService.forget(CatalogService.CACHE_NAME, List.of(key));
+        assertNull(degradedModeService.lookup(CatalogService.CACHE_NAME, key));
+    }
+
+    @Test
+    void writesStayRejectedUntilLastQueuedWriteIsReplayed() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        assertTrue(degradedModeService.enqueue("test write", () -> {
+            started.countDown();
+            await(release);
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // The replayed write is still running, a new one must queue behind it
+        assertThrows(RedisCircuitBreaker.RedisUnavailableException.class, () -> degradedModeService.write(() -> 1));
+        assertEquals(1, degradedModeService.pendingWrites());
+
+        release.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (degradedModeService.pendingWrites() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, degradedModeService.write(() -> 1));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
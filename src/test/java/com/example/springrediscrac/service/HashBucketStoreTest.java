@@ -0,0 +1,145 @@
+package com.example.springrediscrac.service;
+
+import com.example.springrediscrac.model.CacheItem;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+@SpringBootTest(properties = {
+        "app.cache.buckets.enabled=true",
+        "app.warmup.enabled=false"
+})
+@ActiveProfiles("test")
+class HashBucketStoreTest {
+
+    @Autowired
+    private CacheService cacheService;
+
+    @Autowired
+    private HashBucketStore hashBucketStore;
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    private final String key = "test:bucket:" + UUID.randomUUID();
+
+    @AfterEach
+    void cleanUp() {
+        cacheService.deleteValue(key);
+    }
+
+    @Test
+    void smallValueIsStoredInBucket() {
+        cacheService.setValue(new CacheItem(key, "small"));
+
+        assertTrue(hashBucketStore.contains(key));
+        assertEquals(Boolean.FALSE, redisTemplate.hasKey("cache:" + key));
+        assertEquals("small", cacheService.getValue(key));
+    }
+
+    @Test
+    void overwriteMovesEntryBetweenBucketAndKey() {
+        String large = "x".repeat(200);
+        cacheService.setValue(new CacheItem(key, "small"));
+        long firstVersion = hashBucketStore.read(key).version();
+        cacheService.setValue(new CacheItem(key, large));
+
+        assertFalse(hashBucketStore.contains(key));
+        assertEquals(large, cacheService.getValue(key));
+
+        cacheService.setValue(new CacheItem(key, "small again"));
+
+        assertTrue(hashBucketStore.contains(key));
+        assertEquals(Boolean.FALSE, redisTemplate.hasKey("cache:" + key));
+        assertTrue(hashBucketStore.read(key).version() > firstVersion);
+        assertEquals("small again", cacheService.getValue(key));
+    }
+
+    @Test
+    void conditionalUpdateKeepsCreationTimeAndSkipsMissingEntries() throws InterruptedException {
+        assertNull(cacheService.compareAndUpdate(key, "small", null));
+        assertFalse(hashBucketStore.contains(key));
+
+        cacheService.setValue(new CacheItem(key, "small"));
+        CacheService.Metadata created = cacheService.getMetadata(key);
+        Thread.sleep(5);
+        Long version = cacheService.compareAndUpdate(key, "updated", created.version());
+
+        CacheService.Metadata updated = cacheService.getMetadata(key);
+        assertEquals(version, updated.version());
+        assertEquals(created.createdAt(), updated.createdAt());
+        assertTrue(updated.updatedAt() > created.updatedAt());
+    }
+
+    @Test
+    void deleteRemovesBucketedEntry() {
+        cacheService.setValue(new CacheItem(key, "small"));
+
+        assertTrue(cacheService.deleteValue(key));
+        assertFalse(hashBucketStore.contains(key));
+        assertNull(cacheService.getValue(key));
+    }
+
+    @Test
+    void entryWithTtlExpires() throws InterruptedException {
+        cacheService.setValueWithTTL(key, "small", 300, TimeUnit.MILLISECONDS);
+
+        // Before Redis 7.4 fields cannot expire, so the entry is stored under its own key
+        assertEquals(hashBucketStore.supportsFieldExpiration(), hashBucketStore.contains(key));
+        assertEquals("small", cacheService.getValue(key));
+
+        Thread.sleep(500);
+        assertNull(cacheService.getValue(key));
+        assertFalse(hashBucketStore.contains(key));
+    }
+
+    @Test
+    void bucketedRecordsFitMaxValueSize() {
+        boolean bucketed = false;
+        for (int length = 1; length <= 64; length++) {
+            cacheService.setValue(new CacheItem(key, "x".repeat(length)));
+            if (hashBucketStore.contains(key)) {
+                bucketed = true;
+                Long recordSize = redisTemplate.execute((RedisCallback<Long>) connection ->
+                        connection.hashCommands().hStrLen(bytes(hashBucketStore.bucketKey(key)), bytes(key)));
+                if (recordSize > 64) {
+                    fail("record of " + recordSize + " bytes exceeds max-value-size");
+                }
+            }
+        }
+        assertTrue(bucketed);
+    }
+
+    @Test
+    void recordWithoutHeaderReadsAsMiss() {
+        redisTemplate.execute((RedisCallback<Boolean>) connection ->
+                connection.hashCommands().hSet(bytes(hashBucketStore.bucketKey(key)), bytes(key), bytes("garbage")));
+
+        assertNull(hashBucketStore.read(key));
+        assertNull(cacheService.getRawValues(List.of(key)).get(0));
+        assertNull(cacheService.getValue(key));
+
+        // The next write replaces the malformed record
+        cacheService.setValue(new CacheItem(key, "small"));
+        assertEquals("small", cacheService.getValue(key));
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
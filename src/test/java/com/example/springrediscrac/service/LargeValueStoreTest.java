@@ -0,0 +1,131 @@
+package com.example.springrediscrac.service;
+
+import com.example.springrediscrac.model.CacheItem;
+import com.example.springrediscrac.model.ChunkManifest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "app.cache.large-value.threshold=1024",
+        "app.cache.large-value.chunk-size=512",
+        "app.warmup.enabled=false"
+})
+@ActiveProfiles("test")
+class LargeValueStoreTest {
+
+    @Autowired
+    private CacheService cacheService;
+
+    @Autowired
+    private LargeValueStore largeValueStore;
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    private final String key = "test:large:" + UUID.randomUUID();
+
+    @AfterEach
+    void cleanUp() {
+        cacheService.deleteValue(key);
+    }
+
+    @Test
+    void rewriteReplacesChunksAndReleasesOldGeneration() {
+        String first = randomText(1, 8000);
+        String second = randomText(2, 6000);
+        cacheService.setValue(new CacheItem(key, first));
+        cacheService.setValue(new CacheItem(key, second));
+
+        ChunkManifest manifest = assertInstanceOf(ChunkManifest.class, redisTemplate.opsForValue().get("cache:" + key));
+        assertEquals(manifest.getChunkCount(), redisTemplate.opsForHash().size(largeValueStore.chunksKey(key)));
+        assertEquals(second, cacheService.getValue(key));
+    }
+
+    @Test
+    void rewriteWithoutTtlKeepsChunksAfterFirstTtlPassed() throws InterruptedException {
+        cacheService.setValueWithTTL(key, randomText(1, 8000), 500, TimeUnit.MILLISECONDS);
+        String persistent = randomText(2, 8000);
+        cacheService.setValue(new CacheItem(key, persistent));
+
+        Thread.sleep(800);
+        assertEquals(-1L, redisTemplate.getExpire(largeValueStore.chunksKey(key), TimeUnit.MILLISECONDS));
+        assertEquals(persistent, cacheService.getValue(key));
+    }
+
+    @Test
+    void chunksExpireWithValue() throws InterruptedException {
+        cacheService.setValueWithTTL(key, randomText(1, 8000), 300, TimeUnit.MILLISECONDS);
+
+        Thread.sleep(500);
+        assertNull(cacheService.getValue(key));
+        assertEquals(Boolean.FALSE, redisTemplate.hasKey(largeValueStore.chunksKey(key)));
+    }
+
+    @Test
+    void rejectedCommitReleasesItsChunks() {
+        cacheService.setValue(new CacheItem(key, randomText(1, 8000)));
+        ChunkManifest live = assertInstanceOf(ChunkManifest.class, redisTemplate.opsForValue().get("cache:" + key));
+
+        assertThrows(OptimisticLockingFailureException.class,
+                () -> cacheService.compareAndUpdate(key, randomText(2, 8000), -1L));
+        assertEquals(live.getChunkCount(), redisTemplate.opsForHash().size(largeValueStore.chunksKey(key)));
+    }
+
+    @Test
+    void nextCommitSweepsChunksOfAbandonedWrites() {
+        cacheService.setValue(new CacheItem(key, randomText(1, 8000)));
+        long now = System.currentTimeMillis();
+        String abandoned = Long.toString(now - Duration.ofHours(1).toMillis(), 36) + "-dead01:0";
+        String inProgress = Long.toString(now, 36) + "-live01:0";
+        putChunk(abandoned);
+        putChunk(inProgress);
+
+        cacheService.setValue(new CacheItem(key, randomText(2, 8000)));
+
+        assertFalse(hasChunk(abandoned));
+        assertTrue(hasChunk(inProgress));
+    }
+
+    private void putChunk(String field) {
+        redisTemplate.execute((RedisCallback<Boolean>) connection -> connection.hashCommands()
+                .hSet(bytes(largeValueStore.chunksKey(key)), bytes(field), new byte[]{1}));
+    }
+
+    private boolean hasChunk(String field) {
+        return Boolean.TRUE.equals(redisTemplate.execute((RedisCallback<Boolean>) connection -> connection.hashCommands()
+                .hExists(bytes(largeValueStore.chunksKey(key)), bytes(field))));
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    // Random letters compress poorly, so the value spans several chunks
+    private static String randomText(long seed, int length) {
+        SplittableRandom random = new SplittableRandom(seed);
+        StringBuilder text = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            text.append((char) ('a' + random.nextInt(26)));
+        }
+        return text.toString();
+    }
+}
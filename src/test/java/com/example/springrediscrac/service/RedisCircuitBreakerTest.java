@@ -0,0 +1,89 @@
+package com.example.springrediscrac.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.redis.RedisConnectionFailureException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RedisCircuitBreakerTest {
+
+    private static RedisCircuitBreaker breaker(Duration openDuration) {
+        return new RedisCircuitBreaker(true, 10, 4, 50, Duration.ofSeconds(1), 80, openDuration, 2);
+    }
+
+    private static Object fail() {
+        throw new RedisConnectionFailureException("connection refused");
+    }
+
+    @Test
+    void opensWhenFailureRateReachesThreshold() {
+        RedisCircuitBreaker breaker = breaker(Duration.ofMinutes(1));
+        breaker.call(() -> "ok");
+        breaker.call(() -> "ok");
+        assertThrows(RedisCircuitBreaker.RedisUnavailableException.class, () -> breaker.call(RedisCircuitBreakerTest::fail));
+        assertEquals(RedisCircuitBreaker.State.CLOSED, breaker.state());
+
+        assertThrows(RedisCircuitBreaker.RedisUnavailableException.class, () -> breaker.call(RedisCircuitBreakerTest::fail));
+        assertEquals(RedisCircuitBreaker.State.OPEN, breaker.state());
+
+        // Rejected without running the call
+        assertThrows(RedisCircuitBreaker.RedisUnavailableException.class, () -> breaker.call(() -> "ok"));
+    }
+
+    @Test
+    void nonRedisExceptionsDoNotCount() {
+        RedisCircuitBreaker breaker = breaker(Duration.ofMinutes(1));
+        for (int i = 0; i < 10; i++) {
+            assertThrows(OptimisticLockingFailureException.class, () -> breaker.call(() -> {
+                throw new OptimisticLockingFailureException("version mismatch");
+            }));
+        }
+        assertEquals(RedisCircuitBreaker.State.CLOSED, breaker.state());
+    }
+
+    @Test
+    void closesAfterSuccessfulProbes() {
+        RedisCircuitBreaker breaker = breaker(Duration.ZERO);
+        for (int i = 0; i < 4; i++) {
+            assertThrows(RedisCircuitBreaker.RedisUnavailableException.class, () -> breaker.call(RedisCircuitBreakerTest::fail));
+        }
+        assertEquals(RedisCircuitBreaker.State.OPEN, breaker.state());
+
+        breaker.call(() -> "probe");
+        assertEquals(RedisCircuitBreaker.State.HALF_OPEN, breaker.state());
+        breaker.call(() -> "probe");
+        assertEquals(RedisCircuitBreaker.State.CLOSED, breaker.state());
+    }
+
+    @Test
+    void reopensWhenProbeFails() {
+        RedisCircuitBreaker breaker = breaker(Duration.ZERO);
+        for (int i = 0; i < 4; i++) {
+            assertThrows(RedisCircuitBreaker.RedisUnavailableException.class, () -> breaker.call(RedisCircuitBreakerTest::fail));
+        }
+
+        assertThrows(RedisCircuitBreaker.RedisUnavailableException.class, () -> breaker.call(RedisCircuitBreakerTest::fail));
+        assertEquals(RedisCircuitBreaker.State.OPEN, breaker.state());
+    }
+
+    @Test
+    void openedExplicitlyRecoversThroughProbes() {
+        RedisCircuitBreaker breaker = breaker(Duration.ZERO);
+        List<RedisCircuitBreaker.State> changes = new ArrayList<>();
+        breaker.onStateChange(changes::add);
+
+        breaker.open("Redis not reachable after restore");
+        assertEquals(RedisCircuitBreaker.State.OPEN, breaker.state());
+
+        breaker.call(() -> "probe");
+        breaker.call(() -> "probe");
+        assertEquals(RedisCircuitBreaker.State.CLOSED, breaker.state());
+        assertEquals(List.of(RedisCircuitBreaker.State.OPEN, RedisCircuitBreaker.State.CLOSED), changes);
+    }
+}
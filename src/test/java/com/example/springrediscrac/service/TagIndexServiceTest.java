@@ -0,0 +1,100 @@
+package com.example.springrediscrac.service;
+
+import com.example.springrediscrac.model.CacheItem;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+@SpringBootTest(properties = "app.warmup.enabled=false")
+@ActiveProfiles("test")
+class TagIndexServiceTest {
+
+    @Autowired
+    private CacheService cacheService;
+
+    @Autowired
+    private TagIndexService tagIndexService;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    private final String prefix = "test:tags:" + UUID.randomUUID() + ":";
+    private final String tag = "tenant:" + UUID.randomUUID();
+
+    @AfterEach
+    void cleanUp() {
+        for (String key : List.of("a", "b", "c")) {
+            cacheService.deleteValue(prefix + key);
+        }
+    }
+
+    @Test
+    void invalidateDeletesOnlyTaggedEntries() {
+        cacheService.setValue(tagged(prefix + "a", "first", tag));
+        cacheService.setValueWithTTL(prefix + "b", "second", 60, TimeUnit.SECONDS, Set.of(tag));
+        cacheService.setValueWithTTL(prefix + "c", "untagged", 60, TimeUnit.SECONDS);
+        // Reading caches a region copy, which must go as well
+        cacheService.getValue(prefix + "a");
+
+        assertEquals(2, cacheService.invalidateTag(tag));
+
+        assertNull(cacheService.getValue(prefix + "a"));
+        assertNull(cacheService.getValue(prefix + "b"));
+        assertEquals("untagged", cacheService.getValue(prefix + "c"));
+        assertEquals(Boolean.FALSE, stringRedisTemplate.hasKey(tagIndexService.tagKey(tag)));
+    }
+
+    @Test
+    void overwriteMovesEntryToNewTags() {
+        String otherTag = tag + ":other";
+        cacheService.setValue(tagged(prefix + "a", "first", tag));
+        cacheService.setValueWithTTL(prefix + "a", "second", 60, TimeUnit.SECONDS, Set.of(otherTag));
+
+        assertEquals(0, cacheService.invalidateTag(tag));
+        assertEquals("second", cacheService.getValue(prefix + "a"));
+        assertEquals(1, cacheService.invalidateTag(otherTag));
+        assertNull(cacheService.getValue(prefix + "a"));
+    }
+
+    @Test
+    void keysTaggedDuringInvalidationStayIndexed() {
+        cacheService.setValue(tagged(prefix + "a", "first", tag));
+        cacheService.setValue(tagged(prefix + "b", "second", tag));
+
+        tagIndexService.invalidate(tag, keys -> cacheService.setValue(tagged(prefix + "c", "late", tag)));
+
+        assertEquals(Set.of(prefix + "c"), stringRedisTemplate.opsForSet().members(tagIndexService.tagKey(tag)));
+        assertEquals(1, cacheService.invalidateTag(tag));
+    }
+
+    @Test
+    void clearRemovesLeftoversWithoutEntries() {
+        String orphan = prefix + "orphan";
+        stringRedisTemplate.opsForHash().put("meta:" + orphan, "v", "1");
+        stringRedisTemplate.opsForHash().put("chunks:" + orphan, "0-0:0", "x");
+        stringRedisTemplate.opsForSet().add(tagIndexService.tagKey(tag), orphan);
+
+        cacheService.clearAllCache();
+
+        assertEquals(Boolean.FALSE, stringRedisTemplate.hasKey("meta:" + orphan));
+        assertEquals(Boolean.FALSE, stringRedisTemplate.hasKey("chunks:" + orphan));
+        assertEquals(Boolean.FALSE, stringRedisTemplate.hasKey(tagIndexService.tagKey(tag)));
+    }
+
+    private static CacheItem tagged(String key, Object value, String tag) {
+        CacheItem item = new CacheItem(key, value);
+        item.setTags(Set.of(tag));
+        return item;
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.springrediscrac.stats;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RegionStatisticsTest {
+
+    @Test
+    void everyKeyIsEitherBufferedOrCountedAsDropped() throws InterruptedException {
+        RegionStatistics statistics = new RegionStatistics(1000);
+        int threads = 4;
+        int keysPerThread = 500;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> recorders = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            Thread recorder = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < keysPerThread; i++) {
+                    statistics.recordKey(thread + ":" + i);
+                }
+            });
+            recorder.start();
+            recorders.add(recorder);
+        }
+        start.countDown();
+        for (Thread recorder : recorders) {
+            recorder.join();
+        }
+
+        List<String> keys = new ArrayList<>();
+        statistics.drainKeys(keys);
+        Set<String> distinct = new HashSet<>(keys);
+        assertEquals(keys.size(), distinct.size());
+        assertEquals(threads * keysPerThread, keys.size() + statistics.droppedKeys.sum());
+        assertTrue(keys.size() <= 1000);
+        assertEquals(0, statistics.pendingKeys());
+    }
+
+    @Test
+    void drainedSlotsAreReused() {
+        RegionStatistics statistics = new RegionStatistics(16);
+        statistics.recordKey("a");
+        assertEquals(1, statistics.pendingKeys());
+
+        List<String> keys = new ArrayList<>();
+        statistics.drainKeys(keys);
+        assertEquals(List.of("a"), keys);
+
+        statistics.recordKey("b");
+        statistics.clearKeys();
+        assertEquals(0, statistics.pendingKeys());
+    }
+}